@@ -2,18 +2,21 @@ package com.challenge.operations;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * The OperationsApplication class serves as the entry point for the Spring Boot application.
  *
  * This is a standard bootstrap class for a Spring Boot application, which uses the
  * @SpringBootApplication annotation to enable auto-configuration, component scanning,
- * and other Spring Boot features.
+ * and other Spring Boot features. Scheduling is enabled for periodic maintenance tasks
+ * such as refreshing the operation catalog.
  *
  * The main method initializes and runs the entire Spring Boot application by invoking
  * SpringApplication.run with the current class and the provided arguments.
  */
 @SpringBootApplication
+@EnableScheduling
 public class OperationsApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,147 @@
+package com.challenge.operations.config;
+
+import com.challenge.operations.dto.AdmissionStatsDTO;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how many requests are processed at the same time.
+ *
+ * Every request ends up waiting for one of the few pooled JDBC connections, so letting
+ * more requests in than there are connections only moves the queue from the servlet
+ * threads to the pool, where a request holds a servlet thread for up to the pool's
+ * connection timeout. Requests wait up to the queue timeout for a permit and are otherwise
+ * answered with 503 and a Retry-After header.
+ *
+ * A request that goes async, such as a streamed export, keeps its permit until the async
+ * response completes, since it keeps using its connection after the servlet thread returns.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final long queueTimeoutMs;
+    private final Semaphore permits;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates the filter.
+     *
+     * @param enabled whether requests are limited
+     * @param maxConcurrent the number of requests processed at once; defaults to the connection pool size
+     * @param queueTimeoutMs how long a request waits for a permit before it is rejected
+     */
+    public AdmissionControlFilter(
+            @Value("${server.admission.enabled:true}") boolean enabled,
+            @Value("${server.admission.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+            @Value("${server.admission.queue-timeout-ms:2000}") long queueTimeoutMs) {
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            rejected.increment();
+            logger.debug("Rejected {} {}: too many concurrent requests", request.getMethod(), request.getRequestURI());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests.");
+            return;
+        }
+
+        admitted.increment();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * Releases a request's permit once its async response is done, however it ends.
+     */
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Keep listening to the restarted async cycle
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    /**
+     * Returns the limit, the requests currently admitted and the admission counters.
+     *
+     * @return a snapshot of the admission statistics
+     */
+    public AdmissionStatsDTO stats() {
+        return new AdmissionStatsDTO(enabled, maxConcurrent, maxConcurrent - permits.availablePermits(),
+                admitted.sum(), rejected.sum());
+    }
+}
@@ -4,6 +4,7 @@ import com.challenge.operations.jwt.JwtRequestFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
@@ -30,6 +31,10 @@ public class SecurityConfig {
     /**
      * Configures the security filter chain for the application.
      *
+     * Operational endpoints, i.e. the metrics and the catalog refresh, are restricted to
+     * administrators: they expose internals and the refresh reloads the catalog from the
+     * database.
+     *
      * @param http the {@link HttpSecurity} to modify.
      * @return the configured {@link SecurityFilterChain}.
      * @throws Exception if an error occurs during configuration.
@@ -50,6 +55,8 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        .requestMatchers("/api/metrics/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/operations/catalog/refresh").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
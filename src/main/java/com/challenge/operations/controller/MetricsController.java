@@ -0,0 +1,88 @@
+package com.challenge.operations.controller;
+
+import com.challenge.operations.config.AdmissionControlFilter;
+import com.challenge.operations.dto.AdmissionStatsDTO;
+import com.challenge.operations.dto.BalanceLedgerStatsDTO;
+import com.challenge.operations.dto.ExpressionCacheStatsDTO;
+import com.challenge.operations.dto.RecordWriterStatsDTO;
+import com.challenge.operations.service.BalanceLedger;
+import com.challenge.operations.service.RecordWriteBehind;
+import com.challenge.operations.util.ExpressionCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller exposing runtime counters of the service's internal caches and queues.
+ * Restricted to administrators in {@link com.challenge.operations.config.SecurityConfig}.
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    /**
+     * Cache of compiled expressions used by the execute endpoint.
+     */
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    /**
+     * Write-behind writer for operation records.
+     */
+    @Autowired
+    private RecordWriteBehind recordWriteBehind;
+
+    /**
+     * Limiter of concurrently processed requests.
+     */
+    @Autowired
+    private AdmissionControlFilter admissionControlFilter;
+
+    /**
+     * In-memory balance engine.
+     */
+    @Autowired
+    private BalanceLedger balanceLedger;
+
+    /**
+     * Returns the hit, miss and eviction counters of the compiled expression cache.
+     *
+     * @return a ResponseEntity containing the cache statistics
+     */
+    @GetMapping("/expression-cache")
+    public ResponseEntity<ExpressionCacheStatsDTO> expressionCacheStats() {
+        return ResponseEntity.ok(expressionCache.stats());
+    }
+
+    /**
+     * Returns the queue depth and flush latency of the write-behind record writer.
+     *
+     * @return a ResponseEntity containing the writer statistics
+     */
+    @GetMapping("/record-writer")
+    public ResponseEntity<RecordWriterStatsDTO> recordWriterStats() {
+        return ResponseEntity.ok(recordWriteBehind.stats());
+    }
+
+    /**
+     * Returns the concurrency limit and the admitted and rejected request counters.
+     *
+     * @return a ResponseEntity containing the admission statistics
+     */
+    @GetMapping("/admission")
+    public ResponseEntity<AdmissionStatsDTO> admissionStats() {
+        return ResponseEntity.ok(admissionControlFilter.stats());
+    }
+
+    /**
+     * Returns the size, flush and consistency-check counters of the in-memory balance ledger.
+     *
+     * @return a ResponseEntity containing the ledger statistics
+     */
+    @GetMapping("/balance-ledger")
+    public ResponseEntity<BalanceLedgerStatsDTO> balanceLedgerStats() {
+        return ResponseEntity.ok(balanceLedger.stats());
+    }
+}
@@ -1,12 +1,21 @@
 package com.challenge.operations.controller;
 
+import com.challenge.operations.dto.BatchResultDTO;
+import com.challenge.operations.dto.HoldDTO;
+import com.challenge.operations.dto.HoldRequestDTO;
 import com.challenge.operations.dto.OperationDTO;
+import com.challenge.operations.entity.Operation;
+import com.challenge.operations.service.HoldService;
+import com.challenge.operations.service.IdempotencyService;
+import com.challenge.operations.service.OperationCatalog;
 import com.challenge.operations.service.OperationService;
+import com.challenge.operations.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * REST controller for handling various operations such as executing mathematical expressions and generating random strings.
@@ -23,27 +32,154 @@ public class OperationController {
     @Autowired
     private OperationService operationService;
 
+    /**
+     * In-memory catalog of operation costs used to price every request.
+     */
+    @Autowired
+    private OperationCatalog operationCatalog;
+
+    /**
+     * Resolves the user a request acts on from the authenticated principal.
+     */
+    @Autowired
+    private UserService userService;
+
+    /**
+     * Places, captures and expires holds on user balances.
+     */
+    @Autowired
+    private HoldService holdService;
+
+    /**
+     * Replays the response of requests retried with the same Idempotency-Key.
+     */
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     /**
      * Executes an operation based on the provided {@link OperationDTO} and returns the result.
      *
      * @param operationDTO the data transfer object containing information about the operation to be executed,
-     *                     including user ID and the mathematical expression.
+     *                     including the mathematical expression and, optionally, the authenticated user's ID.
+     * @param idempotencyKey optional key; a retry with the same key gets the first response and is not charged again
      * @return a ResponseEntity containing the result of the operation as a BigDecimal.
      */
     @PostMapping("/execute")
-    public ResponseEntity<BigDecimal> executeOperation(@RequestBody OperationDTO operationDTO) {
-        return ResponseEntity.ok(operationService.executeOperation(operationDTO));
+    public ResponseEntity<BigDecimal> executeOperation(@RequestBody OperationDTO operationDTO,
+                                                       @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        operationDTO.setUserId(userService.resolveUserId(operationDTO.getUserId()));
+        String fingerprint = idempotencyService.fingerprint(operationDTO.getExpression(),
+                operationDTO.getNumericMode(), operationDTO.getPrecision());
+        return ResponseEntity.ok(idempotencyService.execute("execute:" + operationDTO.getUserId(), idempotencyKey,
+                fingerprint, BigDecimal.class, () -> operationService.executeOperation(operationDTO)));
+    }
+
+    /**
+     * Executes many expressions in one request. Each expression gets its own result or error;
+     * the expressions that succeed are charged with a single balance update.
+     *
+     * @param operations the expressions to execute; a user ID, if given, must be the authenticated user's
+     * @return a ResponseEntity containing the per-expression results, the total cost and the new balance
+     */
+    @PostMapping("/execute-batch")
+    public ResponseEntity<BatchResultDTO> executeBatch(@RequestBody List<OperationDTO> operations) {
+        Long userId = userService.resolveUserId(null);
+        for (OperationDTO operation : operations) {
+            userService.resolveUserId(operation.getUserId());
+        }
+        return ResponseEntity.ok(operationService.executeBatch(userId, operations));
+    }
+
+    /**
+     * Reserves an amount from the authenticated user's balance. Operations run against the
+     * hold are charged from it without updating the balance.
+     *
+     * @param request the amount to reserve and, optionally, the lifetime of the hold
+     * @return a ResponseEntity containing the new hold
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<HoldDTO> placeHold(@RequestBody HoldRequestDTO request) {
+        Long userId = userService.resolveUserId(null);
+        return ResponseEntity.ok(holdService.place(userId, request.getAmount(), request.getTtlSeconds()));
+    }
+
+    /**
+     * Returns the state of one of the authenticated user's holds.
+     *
+     * @param holdId the ID of the hold
+     * @return a ResponseEntity containing the hold
+     */
+    @GetMapping("/holds/{holdId}")
+    public ResponseEntity<HoldDTO> getHold(@PathVariable String holdId) {
+        return ResponseEntity.ok(holdService.get(holdId, userService.resolveUserId(null)));
+    }
+
+    /**
+     * Executes an operation charged to a hold.
+     *
+     * @param holdId the ID of an open hold of the authenticated user
+     * @param operationDTO the expression to execute
+     * @return a ResponseEntity containing the result of the operation
+     */
+    @PostMapping("/holds/{holdId}/execute")
+    public ResponseEntity<BigDecimal> executeOnHold(@PathVariable String holdId, @RequestBody OperationDTO operationDTO) {
+        operationDTO.setUserId(userService.resolveUserId(operationDTO.getUserId()));
+        return ResponseEntity.ok(operationService.executeOnHold(holdId, operationDTO));
+    }
+
+    /**
+     * Executes many expressions charged to a hold in one request.
+     *
+     * @param holdId the ID of an open hold of the authenticated user
+     * @param operations the expressions to execute; a user ID, if given, must be the authenticated user's
+     * @return a ResponseEntity containing the per-expression results, the total cost and the balance once the hold is settled
+     */
+    @PostMapping("/holds/{holdId}/execute-batch")
+    public ResponseEntity<BatchResultDTO> executeBatchOnHold(@PathVariable String holdId,
+                                                             @RequestBody List<OperationDTO> operations) {
+        Long userId = userService.resolveUserId(null);
+        for (OperationDTO operation : operations) {
+            userService.resolveUserId(operation.getUserId());
+        }
+        return ResponseEntity.ok(operationService.executeBatchOnHold(holdId, userId, operations));
+    }
+
+    /**
+     * Settles a hold, crediting back the part its operations did not consume.
+     *
+     * @param holdId the ID of an open hold of the authenticated user
+     * @return a ResponseEntity containing the settled hold
+     */
+    @PostMapping("/holds/{holdId}/capture")
+    public ResponseEntity<HoldDTO> captureHold(@PathVariable String holdId) {
+        return ResponseEntity.ok(holdService.capture(holdId, userService.resolveUserId(null)));
     }
 
     /**
      * Endpoint for generating a random string for a given user.
      *
-     * @param userId the ID of the user for whom the random string is to be generated
+     * @param userId the ID of the user for whom the random string is to be generated; defaults to the authenticated user
+     * @param idempotencyKey optional key; a retry with the same key gets the first string and is not charged again
      * @return a ResponseEntity containing the generated random string
      */
     @PostMapping("/random-string")
-    public ResponseEntity<String> randomString(@RequestParam Long userId) {
-        String randomString = operationService.generateRandomString(userId);
+    public ResponseEntity<String> randomString(@RequestParam(required = false) Long userId,
+                                               @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        Long resolvedUserId = userService.resolveUserId(userId);
+        String randomString = idempotencyService.execute("random-string:" + resolvedUserId, idempotencyKey,
+                idempotencyService.fingerprint(), String.class, () -> operationService.generateRandomString(resolvedUserId));
         return ResponseEntity.ok(randomString);
     }
+
+    /**
+     * Reloads the operation cost catalog from the database, e.g. after the costs were changed.
+     * Restricted to administrators.
+     *
+     * @return a ResponseEntity containing the operations now in the catalog
+     */
+    @PostMapping("/catalog/refresh")
+    public ResponseEntity<List<Operation>> refreshCatalog() {
+        operationCatalog.refresh();
+        return ResponseEntity.ok(operationCatalog.findAll());
+    }
 }
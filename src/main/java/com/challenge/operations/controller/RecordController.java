@@ -1,17 +1,26 @@
 package com.challenge.operations.controller;
 
-import com.challenge.operations.entity.Record;
-import com.challenge.operations.entity.User;
+import com.challenge.operations.dto.RecordDeleteDTO;
+import com.challenge.operations.dto.RecordPageDTO;
+import com.challenge.operations.dto.RecordView;
+import com.challenge.operations.dto.UsageStatsDTO;
+import com.challenge.operations.service.RecordExportService;
 import com.challenge.operations.service.RecordService;
+import com.challenge.operations.service.UsageService;
 import com.challenge.operations.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/records")
@@ -23,37 +32,116 @@ public class RecordController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private RecordExportService recordExportService;
+
+    @Autowired
+    private UsageService usageService;
+
+    /**
+     * Lists the authenticated user's records one page at a time.
+     *
+     * @param cursor the {@code nextCursor} of the previous page; omit for the first page
+     * @param size the number of records per page
+     * @param type only records of this operation type, e.g. {@code add}
+     * @param from only records dated at or after this ISO date-time
+     * @param to only records dated before this ISO date-time
+     * @param direction {@code DESC} (default) for newest first, {@code ASC} for oldest first
+     * @return the page of records, or 204 if the user has no records matching the filters
+     */
     @GetMapping
-    public ResponseEntity<List<Record>> getUserRecords() {
+    public ResponseEntity<RecordPageDTO<RecordView>> getUserRecords(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "DESC") Sort.Direction direction) {
         Logger logger = LoggerFactory.getLogger(this.getClass());
 
         try {
-            User authenticatedUser = userService.getAuthenticatedUser();
-            if (authenticatedUser == null) {
+            Long userId = userService.getAuthenticatedUserId();
+            if (userId == null) {
                 logger.warn("Unauthorized access attempt.");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
 
-            List<com.challenge.operations.entity.Record> records = recordService.listRecordsByUser(authenticatedUser.getId());
-            if (records == null || records.isEmpty()) {
-                logger.info("No records found for user id {}", authenticatedUser.getId());
+            RecordPageDTO<RecordView> page = recordService.listRecordsPage(userId, cursor, size, type, from, to, direction);
+            if (page.items().isEmpty() && cursor == null) {
+                logger.info("No records found for user id {}", userId);
                 return ResponseEntity.noContent().build();
             }
 
-            return ResponseEntity.ok(records);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid record listing request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error retrieving records", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Downloads the authenticated user's complete record history, oldest first. Rows are
+     * streamed from the database to the response as they are read.
+     *
+     * @param format {@code NDJSON} (default) or {@code CSV}
+     * @return the streamed export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUserRecords(
+            @RequestParam(defaultValue = "NDJSON") RecordExportService.Format format) {
+        Long userId = userService.getAuthenticatedUserId();
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        StreamingResponseBody body = out -> recordExportService.export(userId, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"records." + format.getExtension() + "\"")
+                .body(body);
+    }
+
+    /**
+     * Returns the authenticated user's usage statistics, read from the daily aggregates.
+     *
+     * @param days the length of the reporting period, ending today
+     * @return the total spent, and the operations by type and by day of the period
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<UsageStatsDTO> getUsageStats(@RequestParam(defaultValue = "30") int days) {
+        Long userId = userService.getAuthenticatedUserId();
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return ResponseEntity.ok(usageService.getStats(userId, days));
+    }
+
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteRecord(@PathVariable Long id) {
-        User authenticatedUser = userService.getAuthenticatedUser();
+    public ResponseEntity<Void> deleteRecord(@PathVariable Long id, @RequestParam(defaultValue = "false") boolean soft) {
+        Long userId = userService.getAuthenticatedUserId();
 
-        recordService.deleteRecordById(id, authenticatedUser.getId());
+        recordService.deleteRecordById(id, userId, soft);
 
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Deletes many of the authenticated user's records, by ID or by filter.
+     *
+     * @param request the IDs or filters, and whether to soft delete
+     * @return the number of records deleted
+     */
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<Integer> deleteRecords(@RequestBody RecordDeleteDTO request) {
+        Long userId = userService.getAuthenticatedUserId();
+
+        int deleted = recordService.deleteRecords(userId, request);
+
+        return ResponseEntity.ok(deleted);
+    }
 }
 
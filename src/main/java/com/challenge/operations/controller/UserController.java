@@ -1,5 +1,6 @@
 package com.challenge.operations.controller;
 
+import com.challenge.operations.service.IdempotencyService;
 import com.challenge.operations.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -21,29 +22,46 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    /**
+     * Replays the response of requests retried with the same Idempotency-Key.
+     */
+    @Autowired
+    private IdempotencyService idempotencyService;
 
     /**
      * Adds a specified amount to the balance of the user with the given userId.
      *
      * @param userId the ID of the user to update the balance for.
      * @param amount the amount to be added to the user's balance.
+     * @param idempotencyKey optional key, scoped to the authenticated user like the keys of the
+     *                       other endpoints; a retry with the same key is not credited again
      * @return a ResponseEntity containing a success message if the balance is
      *         added successfully.
      */
     @PostMapping("/add-balance")
-    public ResponseEntity<String> addBalance(@RequestParam Long userId, @RequestParam BigDecimal amount) {
-        userService.addBalance(userId, amount);
-        return ResponseEntity.ok("Balance added successfully!");
+    public ResponseEntity<String> addBalance(@RequestParam Long userId, @RequestParam BigDecimal amount,
+                                             @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        Long callerId = userService.getAuthenticatedUserId();
+        if (callerId == null) {
+            throw new IllegalArgumentException("User not authenticated.");
+        }
+        // The credited user is part of the fingerprint, so reusing a key for another user is a conflict
+        String message = idempotencyService.execute("add-balance:" + callerId, idempotencyKey,
+                idempotencyService.fingerprint(userId, amount.stripTrailingZeros().toPlainString()), String.class, () -> {
+                    userService.addBalance(userId, amount);
+                    return "Balance added successfully!";
+                });
+        return ResponseEntity.ok(message);
     }
 
     /**
      * Retrieves the balance of a user.
      *
-     * @param userId the ID of the user whose balance is to be retrieved
+     * @param userId the ID of the user whose balance is to be retrieved; defaults to the authenticated user
      * @return the balance of the specified user as a {@link BigDecimal} wrapped in a {@link ResponseEntity}
      */
     @GetMapping("/balance")
-    public ResponseEntity<BigDecimal> getBalance(@RequestParam Long userId) {
-        return ResponseEntity.ok(userService.getBalance(userId));
+    public ResponseEntity<BigDecimal> getBalance(@RequestParam(required = false) Long userId) {
+        return ResponseEntity.ok(userService.getBalance(userService.resolveUserId(userId)));
     }
 }
@@ -0,0 +1,13 @@
+package com.challenge.operations.dto;
+
+/**
+ * Data Transfer Object for the counters of the request admission limiter.
+ *
+ * @param enabled whether concurrent requests are limited
+ * @param maxConcurrent the number of requests processed at the same time
+ * @param inFlight the number of requests currently being processed
+ * @param admitted the number of requests admitted since startup
+ * @param rejected the number of requests rejected with 503 since startup
+ */
+public record AdmissionStatsDTO(boolean enabled, int maxConcurrent, int inFlight, long admitted, long rejected) {
+}
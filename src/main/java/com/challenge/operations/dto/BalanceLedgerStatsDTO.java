@@ -0,0 +1,21 @@
+package com.challenge.operations.dto;
+
+/**
+ * Data Transfer Object exposing the state of the in-memory balance ledger.
+ *
+ * @param enabled whether balances are kept in memory instead of updated in the database
+ * @param accounts number of users whose balance is held in memory
+ * @param dirtyAccounts number of users with balance changes not yet written to the database
+ * @param debits number of debits applied in memory
+ * @param rejectedDebits number of debits rejected for insufficient balance
+ * @param flushes number of successful flushes to the database
+ * @param failedFlushes number of flushes that failed and were retried
+ * @param flushedChanges number of per-user net balance changes written by the flusher
+ * @param lastFlushMillis duration of the most recent flush
+ * @param checks number of consistency checks against the database
+ * @param mismatches number of in-memory balances that differed from the database and were reloaded
+ */
+public record BalanceLedgerStatsDTO(boolean enabled, int accounts, int dirtyAccounts, long debits, long rejectedDebits,
+                                    long flushes, long failedFlushes, long flushedChanges, long lastFlushMillis,
+                                    long checks, long mismatches) {
+}
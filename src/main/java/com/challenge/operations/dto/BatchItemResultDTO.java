@@ -0,0 +1,14 @@
+package com.challenge.operations.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object for the outcome of one expression of a batch.
+ *
+ * @param index the position of the expression in the request
+ * @param result the value of the expression, or null if it failed
+ * @param cost the amount charged for the expression, or null if it failed
+ * @param error why the expression failed, or null if it succeeded
+ */
+public record BatchItemResultDTO(int index, BigDecimal result, BigDecimal cost, String error) {
+}
@@ -0,0 +1,21 @@
+package com.challenge.operations.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Data Transfer Object for the outcome of a batch of expressions. Only the expressions
+ * that succeeded are charged.
+ *
+ * @param results the outcome of every expression, in request order
+ * @param succeeded the number of expressions evaluated and charged
+ * @param failed the number of expressions rejected
+ * @param totalCost the amount charged for the batch
+ * @param balance the user's balance after the batch, or null if nothing was charged
+ */
+public record BatchResultDTO(List<BatchItemResultDTO> results,
+                             int succeeded,
+                             int failed,
+                             BigDecimal totalCost,
+                             BigDecimal balance) {
+}
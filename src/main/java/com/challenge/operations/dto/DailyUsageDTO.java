@@ -0,0 +1,14 @@
+package com.challenge.operations.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Data Transfer Object for a user's usage on one day, across all operation types.
+ *
+ * @param day the day
+ * @param operationCount the number of operations performed that day
+ * @param totalAmount the amount charged that day
+ */
+public record DailyUsageDTO(LocalDate day, long operationCount, BigDecimal totalAmount) {
+}
@@ -0,0 +1,13 @@
+package com.challenge.operations.dto;
+
+/**
+ * Data Transfer Object exposing the counters of the compiled expression cache.
+ *
+ * @param hits number of lookups served from the cache
+ * @param misses number of lookups that had to compile the expression
+ * @param evictions number of entries dropped to stay within the configured limits
+ * @param size number of compiled expressions currently cached
+ * @param estimatedBytes estimated memory held by the cached keys and programs
+ */
+public record ExpressionCacheStatsDTO(long hits, long misses, long evictions, int size, long estimatedBytes) {
+}
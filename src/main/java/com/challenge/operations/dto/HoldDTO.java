@@ -0,0 +1,20 @@
+package com.challenge.operations.dto;
+
+import com.challenge.operations.entity.BalanceHold;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object describing a hold on a user's balance.
+ *
+ * @param id the ID used to run operations against the hold and to capture it
+ * @param amount the amount reserved when the hold was placed
+ * @param consumed the amount charged by the operations run against the hold
+ * @param remaining the amount still available, credited back when the hold is settled
+ * @param status the state of the hold
+ * @param expiresAt when an open hold is settled automatically
+ */
+public record HoldDTO(String id, BigDecimal amount, BigDecimal consumed, BigDecimal remaining,
+                      BalanceHold.Status status, LocalDateTime expiresAt) {
+}
@@ -0,0 +1,35 @@
+package com.challenge.operations.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object for placing a hold on the authenticated user's balance.
+ */
+public class HoldRequestDTO {
+
+    /**
+     * The amount to reserve; it is debited immediately.
+     */
+    private BigDecimal amount;
+
+    /**
+     * Optional lifetime of the hold in seconds; the configured default is used when absent.
+     */
+    private Long ttlSeconds;
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(Long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
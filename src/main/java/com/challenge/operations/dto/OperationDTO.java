@@ -1,13 +1,29 @@
 package com.challenge.operations.dto;
 
+import com.challenge.operations.util.NumericMode;
+
 /**
  * Data Transfer Object for representing an operation to be executed.
  */
 public class OperationDTO {
 
+    /**
+     * Optional; the authenticated user is used when absent, and a different user is rejected.
+     */
     private Long userId;
     private String expression;
 
+    /**
+     * Optional arithmetic for this request; the configured default is used when absent.
+     */
+    private NumericMode numericMode;
+
+    /**
+     * Optional number of significant digits for {@link NumericMode#DECIMAL}; the
+     * configured default is used when absent.
+     */
+    private Integer precision;
+
     public Long getUserId() {
         return userId;
     }
@@ -23,5 +39,20 @@ public class OperationDTO {
     public void setExpression(String expression) {
         this.expression = expression;
     }
-}
 
+    public NumericMode getNumericMode() {
+        return numericMode;
+    }
+
+    public void setNumericMode(NumericMode numericMode) {
+        this.numericMode = numericMode;
+    }
+
+    public Integer getPrecision() {
+        return precision;
+    }
+
+    public void setPrecision(Integer precision) {
+        this.precision = precision;
+    }
+}
@@ -0,0 +1,75 @@
+package com.challenge.operations.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data Transfer Object for deleting many records at once, either by ID or by filter.
+ */
+public class RecordDeleteDTO {
+
+    /**
+     * IDs of the records to delete; when present the filters are ignored.
+     */
+    private List<Long> ids;
+
+    /**
+     * Only delete records of this operation type, e.g. {@code "add"}.
+     */
+    private String type;
+
+    /**
+     * Only delete records dated at or after this instant.
+     */
+    private LocalDateTime from;
+
+    /**
+     * Only delete records dated before this instant.
+     */
+    private LocalDateTime to;
+
+    /**
+     * Hide the records instead of removing them from the table.
+     */
+    private boolean soft;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public boolean isSoft() {
+        return soft;
+    }
+
+    public void setSoft(boolean soft) {
+        this.soft = soft;
+    }
+}
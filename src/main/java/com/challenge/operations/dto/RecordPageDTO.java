@@ -0,0 +1,13 @@
+package com.challenge.operations.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for one page of a keyset-paginated record listing.
+ *
+ * @param items the records of this page, in the requested order
+ * @param nextCursor the cursor of the next page, or null if this is the last page
+ * @param <T> the type of the listed records
+ */
+public record RecordPageDTO<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,24 @@
+package com.challenge.operations.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a record for the history listing. It carries only the columns the
+ * listing shows and is built directly by the query, so listing records neither loads the
+ * associated User and Operation entities nor exposes user data such as the password hash.
+ *
+ * @param id the ID of the record
+ * @param operationType the type of the operation, e.g. {@code "add"}
+ * @param amount the amount charged for the operation
+ * @param userBalance the balance of the user after the operation
+ * @param operationResponse the result of the operation
+ * @param date when the operation was performed
+ */
+public record RecordView(Long id,
+                         String operationType,
+                         BigDecimal amount,
+                         BigDecimal userBalance,
+                         String operationResponse,
+                         LocalDateTime date) {
+}
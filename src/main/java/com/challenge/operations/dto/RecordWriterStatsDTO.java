@@ -0,0 +1,20 @@
+package com.challenge.operations.dto;
+
+/**
+ * Data Transfer Object exposing the state of the write-behind record writer.
+ *
+ * @param enabled whether records are written behind instead of inline
+ * @param queueDepth number of records waiting to be flushed
+ * @param capacity maximum number of records that can wait before callers are throttled
+ * @param flushedRecords number of records written by the background flusher
+ * @param flushes number of successful batch flushes
+ * @param failedFlushes number of flush attempts that failed and were retried
+ * @param synchronousWrites number of records written inline because the queue was full
+ * @param lastFlushMillis duration of the most recent flush
+ * @param averageFlushMillis average duration of successful flushes
+ * @param maxFlushMillis longest successful flush
+ */
+public record RecordWriterStatsDTO(boolean enabled, int queueDepth, int capacity, long flushedRecords, long flushes,
+                                   long failedFlushes, long synchronousWrites, long lastFlushMillis,
+                                   long averageFlushMillis, long maxFlushMillis) {
+}
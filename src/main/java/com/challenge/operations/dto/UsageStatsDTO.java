@@ -0,0 +1,23 @@
+package com.challenge.operations.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Transfer Object for a user's usage statistics.
+ *
+ * @param totalSpent the amount charged over all time
+ * @param days the length of the reporting period in days, ending today
+ * @param periodOperations the number of operations performed in the period
+ * @param periodSpent the amount charged in the period
+ * @param operationsByType the number of operations in the period per operation type
+ * @param daily the usage of each day of the period that had any operations, oldest first
+ */
+public record UsageStatsDTO(BigDecimal totalSpent,
+                            int days,
+                            long periodOperations,
+                            BigDecimal periodSpent,
+                            Map<String, Long> operationsByType,
+                            List<DailyUsageDTO> daily) {
+}
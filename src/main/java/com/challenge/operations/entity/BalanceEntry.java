@@ -0,0 +1,101 @@
+package com.challenge.operations.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The BalanceEntry class represents one change of a user's balance in the append-only
+ * balance journal: a positive amount for credits, a negative one for debits. Entries are
+ * never updated except to be marked as compacted once their amount has been added to
+ * {@code User.balance}, so the user's current balance is the stored balance plus the sum
+ * of the entries not yet compacted, and the entries remain as the history of the balance.
+ *
+ * IDs come from a pooled sequence, so Hibernate can allocate them in blocks and batch
+ * the inserts.
+ */
+@Entity
+@Table(name = "balance_entry", indexes = {
+        @Index(name = "idx_balance_entry_user_compacted", columnList = "user_id, compacted"),
+        @Index(name = "idx_balance_entry_compacted", columnList = "compacted, id")
+})
+public class BalanceEntry {
+
+    /**
+     * Why the balance changed.
+     */
+    public enum Kind {
+        CREDIT,
+        DEBIT
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "balance_entry_seq")
+    @SequenceGenerator(name = "balance_entry_seq", sequenceName = "balance_entry_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private boolean compacted;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public boolean isCompacted() {
+        return compacted;
+    }
+
+    public void setCompacted(boolean compacted) {
+        this.compacted = compacted;
+    }
+}
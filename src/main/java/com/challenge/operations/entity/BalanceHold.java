@@ -0,0 +1,129 @@
+package com.challenge.operations.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The BalanceHold class represents an amount reserved from a user's balance. The amount is
+ * debited when the hold is placed; operations run against the hold consume it in memory,
+ * and the part not consumed is credited back when the hold is captured or expires.
+ *
+ * A row is written when the hold is placed and when it is settled. Each row records the
+ * instance that holds it in memory; holds still open after that instance restarts, or long
+ * after their expiry, are released with the consumption last written to their row.
+ */
+@Entity
+@Table(name = "balance_hold", indexes = {
+        @Index(name = "idx_balance_hold_status", columnList = "status"),
+        @Index(name = "idx_balance_hold_owner", columnList = "owner, status")
+})
+public class BalanceHold {
+
+    /**
+     * Lifecycle of a hold.
+     */
+    public enum Status {
+        OPEN,
+        CAPTURED,
+        EXPIRED,
+        RELEASED
+    }
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private BigDecimal consumed = BigDecimal.ZERO;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(length = 64)
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public BigDecimal getConsumed() {
+        return consumed;
+    }
+
+    public void setConsumed(BigDecimal consumed) {
+        this.consumed = consumed;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,42 @@
+package com.challenge.operations.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * The BalanceLedgerCheckpoint class holds the single row recording the newest write-ahead
+ * log segment of the in-memory balance ledger whose changes reached the {@code user}
+ * table. It is updated in the same transaction as the balances, so segments at or below
+ * the checkpoint are known to be applied and are not replayed after a crash.
+ */
+@Entity
+@Table(name = "balance_ledger_checkpoint")
+public class BalanceLedgerCheckpoint {
+
+    /**
+     * Always 1; the table holds a single row.
+     */
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private long lastSegment;
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public long getLastSegment() {
+        return lastSegment;
+    }
+
+    public void setLastSegment(long lastSegment) {
+        this.lastSegment = lastSegment;
+    }
+}
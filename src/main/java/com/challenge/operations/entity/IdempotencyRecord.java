@@ -0,0 +1,76 @@
+package com.challenge.operations.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * The IdempotencyRecord class stores the response of a request sent with an
+ * Idempotency-Key header, so a retry of the request gets the same response instead of
+ * being executed again, even after a restart. Rows are only written when persistence of
+ * idempotency keys is enabled and are deleted once they are older than the key lifetime.
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = {
+        @Index(name = "idx_idempotency_record_created_at", columnList = "createdAt")
+})
+public class IdempotencyRecord {
+
+    /**
+     * The endpoint, the user and the client's key.
+     */
+    @Id
+    @Column(length = 320)
+    private String id;
+
+    /**
+     * Hash of the request parameters; a key reused with other parameters is rejected.
+     */
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    /**
+     * The response body as JSON.
+     */
+    @Column(nullable = false, length = 4000)
+    private String response;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public void setResponse(String response) {
+        this.response = response;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,72 @@
+package com.challenge.operations.entity;
+
+import com.challenge.operations.util.CompiledExpression;
+
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The kinds of operation that can be billed, matching the {@code type} column of the
+ * {@link Operation} table.
+ *
+ * Constants are declared in the order used to pick the operation recorded for an
+ * expression when several used operators cost the same.
+ */
+public enum OperationType {
+
+    MULTIPLY("multiply", CompiledExpression.MULTIPLY_OPERATOR),
+    DIVIDE("divide", CompiledExpression.DIVIDE_OPERATOR),
+    ADD("add", CompiledExpression.ADD_OPERATOR),
+    SUBTRACT("subtract", CompiledExpression.SUBTRACT_OPERATOR),
+    SQRT("sqrt", CompiledExpression.SQRT_OPERATOR),
+    RANDOM_STRING("random-string", 0);
+
+    private final String type;
+    private final int operatorBit;
+
+    OperationType(String type, int operatorBit) {
+        this.type = type;
+        this.operatorBit = operatorBit;
+    }
+
+    /**
+     * Returns the value stored in the {@code type} column for this operation.
+     *
+     * @return the operation type name
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Looks up the operation type stored in the {@code type} column.
+     *
+     * @param type the operation type name, e.g. {@code "add"}
+     * @return the matching operation type, or an empty Optional if the name is unknown
+     */
+    public static Optional<OperationType> fromType(String type) {
+        for (OperationType operationType : values()) {
+            if (operationType.type.equals(type)) {
+                return Optional.of(operationType);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the operation types of the operators set in the given mask.
+     *
+     * @param operatorMask the mask returned by {@link CompiledExpression#operatorMask()}
+     * @return the operation types used by the expression, empty if it has no operator
+     */
+    public static Set<OperationType> fromOperatorMask(int operatorMask) {
+        Set<OperationType> types = EnumSet.noneOf(OperationType.class);
+        for (OperationType operationType : values()) {
+            if ((operatorMask & operationType.operatorBit) != 0) {
+                types.add(operationType);
+            }
+        }
+        return types;
+    }
+}
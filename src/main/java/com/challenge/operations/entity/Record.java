@@ -9,26 +9,50 @@ import java.time.LocalDateTime;
  * The Record class represents a record entity with attributes for user,
  * operation, amount, user balance, operation response, and date. This class
  * can be stored in a database with an auto-generated ID.
+ *
+ * IDs come from a pooled sequence rather than an identity column, so Hibernate can
+ * allocate them in blocks and batch the inserts.
+ *
+ * The composite indexes match the keyset listings in {@code RecordRepository}: one for
+ * a user's whole history and one for a user's history filtered by operation, both
+ * ordered by {@code (date, id)}.
+ *
+ * The user and operation are loaded lazily; listings read {@code RecordView} projections
+ * instead of entities, so they never touch the associations.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_record_user_date", columnList = "user_id, date, id"),
+        @Index(name = "idx_record_user_operation_date", columnList = "user_id, operation_id, date, id")
+})
 public class Record {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "record_seq")
+    @SequenceGenerator(name = "record_seq", sequenceName = "record_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Operation operation;
 
     private BigDecimal amount;
     private BigDecimal userBalance;
     private String operationResponse;
+
+    @Column(nullable = false)
     private LocalDateTime date;
 
+    /**
+     * Set when the owner deletes the record in soft mode; such records are hidden from
+     * listings but kept in the table.
+     */
+    @Column(nullable = false)
+    private boolean deleted;
+
     public Long getId() {
         return id;
     }
@@ -84,5 +108,12 @@ public class Record {
     public void setDate(LocalDateTime date) {
         this.date = date;
     }
-}
 
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
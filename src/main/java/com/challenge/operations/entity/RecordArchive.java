@@ -0,0 +1,105 @@
+package com.challenge.operations.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The RecordArchive class represents a record that has been moved out of the
+ * {@code record} table by the archiver because it is older than the retention period.
+ * Rows keep the ID, columns and owner they had in {@code record}; they are only
+ * written by the archiver's INSERT ... SELECT and are read through the same
+ * {@code RecordView} projection as hot records.
+ */
+@Entity
+@Table(name = "record_archive", indexes = {
+        @Index(name = "idx_record_archive_user_date", columnList = "user_id, date, id"),
+        @Index(name = "idx_record_archive_user_operation_date", columnList = "user_id, operation_id, date, id")
+})
+public class RecordArchive {
+
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Operation operation;
+
+    private BigDecimal amount;
+    private BigDecimal userBalance;
+    private String operationResponse;
+
+    @Column(nullable = false)
+    private LocalDateTime date;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public BigDecimal getUserBalance() {
+        return userBalance;
+    }
+
+    public void setUserBalance(BigDecimal userBalance) {
+        this.userBalance = userBalance;
+    }
+
+    public String getOperationResponse() {
+        return operationResponse;
+    }
+
+    public void setOperationResponse(String operationResponse) {
+        this.operationResponse = operationResponse;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDateTime date) {
+        this.date = date;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,53 @@
+package com.challenge.operations.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+
+/**
+ * The UsageDaily class represents how many operations of one type a user performed on
+ * one day and how much they were charged for them. Rows are maintained incrementally
+ * whenever a record is saved, so usage statistics are read from at most one row per
+ * day and type instead of from the records themselves. Deleting or archiving records
+ * does not change the aggregates, which describe charges rather than history rows.
+ */
+@Entity
+@Table(name = "usage_daily")
+public class UsageDaily {
+
+    @EmbeddedId
+    private UsageDailyId id;
+
+    @Column(nullable = false)
+    private long operationCount;
+
+    @Column(nullable = false)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    public UsageDailyId getId() {
+        return id;
+    }
+
+    public void setId(UsageDailyId id) {
+        this.id = id;
+    }
+
+    public long getOperationCount() {
+        return operationCount;
+    }
+
+    public void setOperationCount(long operationCount) {
+        this.operationCount = operationCount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+}
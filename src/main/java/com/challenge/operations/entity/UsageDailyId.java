@@ -0,0 +1,64 @@
+package com.challenge.operations.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Composite key of {@link UsageDaily}: one row per user, day and operation type. The
+ * column order puts the user and day first so a user's recent days are one index range.
+ */
+@Embeddable
+public class UsageDailyId implements Serializable {
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "usage_date")
+    private LocalDate usageDate;
+
+    @Column(name = "operation_type")
+    private String operationType;
+
+    public UsageDailyId() {
+    }
+
+    public UsageDailyId(Long userId, LocalDate usageDate, String operationType) {
+        this.userId = userId;
+        this.usageDate = usageDate;
+        this.operationType = operationType;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDate getUsageDate() {
+        return usageDate;
+    }
+
+    public String getOperationType() {
+        return operationType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UsageDailyId other)) {
+            return false;
+        }
+        return Objects.equals(userId, other.userId)
+                && Objects.equals(usageDate, other.usageDate)
+                && Objects.equals(operationType, other.operationType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, usageDate, operationType);
+    }
+}
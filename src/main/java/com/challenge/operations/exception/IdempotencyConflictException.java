@@ -0,0 +1,13 @@
+package com.challenge.operations.exception;
+
+/**
+ * Exception thrown when a request carries the Idempotency-Key of another request that is
+ * still being processed, and the first request did not finish in time to share its response.
+ *
+ * @param message a detailed message about the cause of the exception
+ */
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
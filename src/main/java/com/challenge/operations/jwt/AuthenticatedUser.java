@@ -0,0 +1,33 @@
+package com.challenge.operations.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal stored in the security context for an authenticated request. Besides the
+ * username and authorities it carries the user's ID, so request handlers can identify
+ * the user without looking it up again.
+ */
+public class AuthenticatedUser extends User {
+
+    private final Long id;
+
+    /**
+     * Creates the principal of a user.
+     *
+     * @param id the ID of the user
+     * @param username the username of the user
+     * @param password the password hash of the user; may be empty when it is not known
+     * @param authorities the authorities granted to the user
+     */
+    public AuthenticatedUser(Long id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
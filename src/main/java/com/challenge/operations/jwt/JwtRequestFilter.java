@@ -1,12 +1,19 @@
 package com.challenge.operations.jwt;
 
 import com.challenge.operations.service.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -14,15 +21,26 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * JwtRequestFilter is responsible for filtering HTTP requests to validate the presence
  * and validity of JWT tokens. It extends the OncePerRequestFilter to ensure that the
  * filter is executed once per request.
+ *
+ * In stateless mode ({@code jwt.stateless=true}) the principal is built entirely from the
+ * verified claims: the subject, the user ID claim and the roles claim, so authenticating
+ * a request reads nothing from the database. Tokens without a user ID claim fall back to
+ * loading the user. Only enable it when every token is issued by a trusted Authentication
+ * API that sets these claims.
  */
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtRequestFilter.class);
+
     /**
      * The CustomUserDetailsService instance responsible for
      * loading user-specific data during the JWT authentication process.
@@ -44,9 +62,28 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
 
+    /**
+     * Whether to trust the user ID and roles claims instead of loading the user.
+     */
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
+
+    /**
+     * Name of the claim holding the numeric user ID.
+     */
+    @Value("${jwt.claims.user-id:uid}")
+    private String userIdClaim = "uid";
+
+    /**
+     * Name of the claim holding the user's roles, as a list or a comma-separated string.
+     */
+    @Value("${jwt.claims.roles:roles}")
+    private String rolesClaim = "roles";
+
     /**
      * Filters each HTTP request, checks the "Authorization" header for a JWT token,
      * validates the token, and sets the authentication context if the token is valid.
+     * The token is verified and parsed once; the resulting claims serve every check.
      *
      * @param request the HTTP request object containing the client request
      * @param response the HTTP response object to send the response
@@ -60,18 +97,23 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        Claims claims = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtUtil.extractUsername(jwt);
+            try {
+                claims = jwtUtil.parseClaims(authorizationHeader.substring(7));
+            } catch (JwtException | IllegalArgumentException e) {
+                // The request continues unauthenticated and is rejected by the security chain
+                log.debug("Rejected JWT: {}", e.getMessage());
+            }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.customUserDetailsService.loadUserByUsername(username);
+        if (claims != null && claims.getSubject() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = stateless && claims.get(userIdClaim) instanceof Number
+                    ? principalFromClaims(claims)
+                    : this.customUserDetailsService.loadUserByUsername(claims.getSubject());
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (jwtUtil.validateToken(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 usernamePasswordAuthenticationToken.setDetails(
@@ -83,4 +125,38 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         chain.doFilter(request, response);
     }
+
+    /**
+     * Builds the principal from verified claims without reading the user table. Roles
+     * without the {@code ROLE_} prefix get it; a token without roles is granted ROLE_USER.
+     *
+     * @param claims the verified claims; the user ID claim must be a number
+     * @return the principal described by the token
+     */
+    AuthenticatedUser principalFromClaims(Claims claims) {
+        Long userId = ((Number) claims.get(userIdClaim)).longValue();
+        return new AuthenticatedUser(userId, claims.getSubject(), "", authorities(claims.get(rolesClaim)));
+    }
+
+    private static Collection<GrantedAuthority> authorities(Object roles) {
+        List<String> names = new ArrayList<>();
+        if (roles instanceof Collection<?> collection) {
+            collection.forEach(role -> names.add(String.valueOf(role)));
+        } else if (roles instanceof String string) {
+            for (String role : string.split(",")) {
+                names.add(role.trim());
+            }
+        }
+
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (String name : names) {
+            if (!name.isEmpty()) {
+                authorities.add(new SimpleGrantedAuthority(name.startsWith("ROLE_") ? name : "ROLE_" + name));
+            }
+        }
+        if (authorities.isEmpty()) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+        }
+        return authorities;
+    }
 }
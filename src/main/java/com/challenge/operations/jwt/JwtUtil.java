@@ -1,18 +1,30 @@
 package com.challenge.operations.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Function;
 
 /**
  * JwtUtil is a utility class that provides methods for extracting information from
  * JSON Web Tokens (JWT), validating tokens, and checking token expiration. It leverages
  * a secret key for signing and verifying the JWT.
+ *
+ * The signing key and the parser are built once at startup. A token is verified and
+ * parsed once per request through {@link #parseClaims(String)}, and recently verified
+ * tokens are remembered until they expire, so a client reusing its token skips the
+ * HMAC check and the JSON parsing on later requests.
  */
 @Component
 public class JwtUtil {
@@ -24,6 +36,66 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String SECRET_KEY;
 
+    /**
+     * Maximum number of verified tokens remembered; 0 disables the cache.
+     */
+    @Value("${jwt.verified-cache.max-entries:10000}")
+    private int verifiedCacheMaxEntries;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    /**
+     * Claims of recently verified tokens keyed by the complete token, in access order.
+     * Guarded by itself.
+     */
+    private final LinkedHashMap<String, Claims> verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+            return size() > verifiedCacheMaxEntries;
+        }
+    };
+
+    /**
+     * Decodes the secret and builds the thread-safe parser shared by every request.
+     */
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
+    /**
+     * Verifies the signature of the token and returns its claims. Tokens verified before
+     * are served from the cache until they expire.
+     *
+     * @param token the JWT token
+     * @return the claims contained within the token
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, expired or its signature is invalid
+     */
+    public Claims parseClaims(String token) {
+        if (verifiedCacheMaxEntries <= 0) {
+            return extractAllClaims(token);
+        }
+        Claims cached;
+        synchronized (verifiedTokens) {
+            cached = verifiedTokens.get(token);
+            if (cached != null && isTokenExpired(cached)) {
+                verifiedTokens.remove(token);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = extractAllClaims(token);
+        synchronized (verifiedTokens) {
+            verifiedTokens.put(token, claims);
+        }
+        return claims;
+    }
+
     /**
      * Extracts the username from the given JWT token.
      *
@@ -53,7 +125,7 @@ public class JwtUtil {
      * @return the claim extracted from the token as resolved by the claimsResolver
      */
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseClaims(token);
         return claimsResolver.apply(claims);
     }
 
@@ -64,17 +136,18 @@ public class JwtUtil {
      * @return the claims contained within the token
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
-     * Checks if the provided JWT token has expired.
+     * Checks if the claims of a token have expired.
      *
-     * @param token the JWT token to check
+     * @param claims the claims of the token to check
      * @return true if the token has expired, false otherwise
      */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private boolean isTokenExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.before(new Date());
     }
 
     /**
@@ -86,7 +159,17 @@ public class JwtUtil {
      * @return true if the token is valid, false otherwise
      */
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(parseClaims(token), userDetails);
+    }
+
+    /**
+     * Validates already verified claims against the given user.
+     *
+     * @param claims the claims of the token, as returned by {@link #parseClaims(String)}
+     * @param userDetails the UserDetails object to compare with the token's username
+     * @return true if the token belongs to the user and has not expired, false otherwise
+     */
+    public boolean validateToken(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject()) && !isTokenExpired(claims);
     }
 }
@@ -0,0 +1,119 @@
+package com.challenge.operations.jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Short-lived cache of authenticated principals keyed by username.
+ *
+ * Authenticating a request would otherwise read the user row every time. Entries expire
+ * after the configured TTL and the least recently used entries are dropped beyond the size
+ * limit. A principal carries the user's ID, username, password hash and roles, not the
+ * balance, so balance updates leave it valid; {@link com.challenge.operations.service.UserService}
+ * evicts the entry whenever it saves a user, and a change made directly in the database is
+ * picked up within one TTL.
+ *
+ * A load that was already running when its key is evicted still returns its principal to
+ * its caller but does not cache it, so an eviction cannot be undone by a load that read
+ * the row before the change.
+ */
+@Component
+public class PrincipalCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    /**
+     * Entries in access order, trimmed to {@code maxEntries}; guarded by {@code this}.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Token of the latest load of each key that is still running; an eviction removes it,
+     * and a load only caches its result if its token is still current. Guarded by {@code this}.
+     */
+    private final Map<String, Object> loads = new HashMap<>();
+
+    private record Entry(AuthenticatedUser principal, long expiresAt) {
+    }
+
+    /**
+     * Creates a cache with the given limits.
+     *
+     * @param ttlMillis how long a principal is reused, in milliseconds; 0 disables the cache
+     * @param maxEntries the maximum number of cached principals
+     */
+    public PrincipalCache(@Value("${security.principal-cache.ttl-ms:60000}") long ttlMillis,
+                          @Value("${security.principal-cache.max-entries:10000}") int maxEntries) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PrincipalCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached principal of the user, loading and caching it if it is missing
+     * or expired. The loader runs outside the lock.
+     *
+     * @param username the username
+     * @param loader loads the principal on a miss
+     * @return the principal
+     */
+    public AuthenticatedUser get(String username, Function<String, AuthenticatedUser> loader) {
+        if (ttlNanos <= 0) {
+            return loader.apply(username);
+        }
+        long now = System.nanoTime();
+        Object token = new Object();
+        synchronized (this) {
+            Entry entry = entries.get(username);
+            if (entry != null && entry.expiresAt() - now > 0) {
+                return entry.principal();
+            }
+            loads.put(username, token);
+        }
+
+        AuthenticatedUser principal = null;
+        try {
+            principal = loader.apply(username);
+            return principal;
+        } finally {
+            synchronized (this) {
+                if (loads.get(username) == token) {
+                    loads.remove(username);
+                    if (principal != null) {
+                        entries.put(username, new Entry(principal, now + ttlNanos));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the cached principal of the user, e.g. after the user was changed, and keeps
+     * a load of it that is already running from caching what it read.
+     *
+     * @param username the username
+     */
+    public synchronized void evict(String username) {
+        entries.remove(username);
+        loads.remove(username);
+    }
+
+    /**
+     * Drops every cached principal and keeps running loads from caching theirs.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        loads.clear();
+    }
+}
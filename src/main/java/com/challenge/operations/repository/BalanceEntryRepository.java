@@ -0,0 +1,81 @@
+package com.challenge.operations.repository;
+
+import com.challenge.operations.entity.BalanceEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * BalanceEntryRepository provides access to the append-only balance journal.
+ */
+public interface BalanceEntryRepository extends JpaRepository<BalanceEntry, Long> {
+
+    /**
+     * Reads a user's current balance: the compacted balance stored on the user plus the
+     * entries not compacted yet. Both parts are read by one statement, so a concurrent
+     * compaction is seen either entirely or not at all.
+     *
+     * @param userId the ID of the user
+     * @return the balance, or an empty Optional if the user does not exist
+     */
+    @Query(value = "select u.balance + coalesce((select sum(e.amount) from balance_entry e "
+            + "where e.user_id = u.id and e.compacted = false), 0) from user u where u.id = :userId",
+            nativeQuery = true)
+    Optional<BigDecimal> findCurrentBalance(@Param("userId") Long userId);
+
+    /**
+     * Reads a user's current balance like {@link #findCurrentBalance(Long)}, but with a locking
+     * read: the user's row and uncompacted entries are locked until the current transaction
+     * ends, and the latest committed entries are seen even if the transaction read the
+     * balance before. Must be called in a transaction. Callers debiting the same user wait
+     * for each other here until the transaction holding the lock ends.
+     *
+     * @param userId the ID of the user
+     * @return the balance, or an empty Optional if the user does not exist
+     */
+    @Query(value = "select u.balance + coalesce(sum(e.amount), 0) from user u "
+            + "left join balance_entry e on e.user_id = u.id and e.compacted = false "
+            + "where u.id = :userId group by u.id, u.balance for update", nativeQuery = true)
+    Optional<BigDecimal> lockCurrentBalance(@Param("userId") Long userId);
+
+    /**
+     * Finds entries waiting to be compacted, oldest first.
+     *
+     * @param pageable the maximum number of IDs to return
+     * @return the IDs of entries not compacted yet
+     */
+    @Query("select e.id from BalanceEntry e where e.compacted = false order by e.id")
+    List<Long> findUncompactedIds(Pageable pageable);
+
+    /**
+     * Adds the sum of the given entries to the balance stored on each of their users.
+     *
+     * @param ids the IDs of entries not compacted yet
+     * @return the number of users updated
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update user u join (select user_id, sum(amount) as total from balance_entry "
+            + "where id in (:ids) and compacted = false group by user_id) d on d.user_id = u.id "
+            + "set u.balance = u.balance + d.total", nativeQuery = true)
+    int addToStoredBalances(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Marks entries as included in the stored balances.
+     *
+     * @param ids the IDs of the entries
+     * @return the number of entries marked
+     */
+    @Transactional
+    @Modifying
+    @Query("update BalanceEntry e set e.compacted = true where e.id in :ids and e.compacted = false")
+    int markCompacted(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,67 @@
+package com.challenge.operations.repository;
+
+import com.challenge.operations.entity.BalanceHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * BalanceHoldRepository provides access to the persisted state of balance holds.
+ */
+public interface BalanceHoldRepository extends JpaRepository<BalanceHold, String> {
+
+    /**
+     * Finds the holds in the given state owned by an instance, e.g. the holds this instance
+     * left open before a restart.
+     *
+     * @param status the state to look for
+     * @param owner the instance that placed the holds
+     * @return the matching holds
+     */
+    List<BalanceHold> findByStatusAndOwner(BalanceHold.Status status, String owner);
+
+    /**
+     * Finds the holds in the given state that expired before a point in time, whatever
+     * instance placed them.
+     *
+     * @param status the state to look for
+     * @param expiresAt the point in time the holds must have expired before
+     * @return the matching holds
+     */
+    List<BalanceHold> findByStatusAndExpiresAtBefore(BalanceHold.Status status, LocalDateTime expiresAt);
+
+    /**
+     * Records how much of an open hold has been consumed so far.
+     *
+     * @param id the ID of the hold
+     * @param consumed the amount consumed
+     * @return 1 if the hold is still open and was updated, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update BalanceHold h set h.consumed = :consumed "
+            + "where h.id = :id and h.status = com.challenge.operations.entity.BalanceHold.Status.OPEN")
+    int updateConsumed(@Param("id") String id, @Param("consumed") BigDecimal consumed);
+
+    /**
+     * Settles an open hold. Only one caller can settle a given hold, so the one that gets 1
+     * back is the one that credits the unused amount.
+     *
+     * @param id the ID of the hold
+     * @param status the final state of the hold
+     * @param consumed the amount consumed
+     * @return 1 if the hold was open and is now settled, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update BalanceHold h set h.status = :status, h.consumed = :consumed "
+            + "where h.id = :id and h.status = com.challenge.operations.entity.BalanceHold.Status.OPEN")
+    int settle(@Param("id") String id, @Param("status") BalanceHold.Status status,
+               @Param("consumed") BigDecimal consumed);
+}
@@ -0,0 +1,228 @@
+package com.challenge.operations.repository;
+
+import com.challenge.operations.dto.RecordView;
+import com.challenge.operations.entity.RecordArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * RecordArchiveRepository provides access to records moved to the {@code record_archive}
+ * table. The listing and deletion queries mirror those of {@link RecordRepository} so the
+ * service can apply the same request to both tables.
+ */
+public interface RecordArchiveRepository extends JpaRepository<RecordArchive, Long> {
+
+    /**
+     * Returns the user's records that come before the cursor, newest first.
+     *
+     * The predicate is a plain range on the {@code (user_id, date, id)} index: the start of
+     * the date range and the cursor are always bound, the first page using the end of the
+     * date range as its cursor, and the cursor is compared as a row value so the seek
+     * starts at the cursor instead of filtering the rows after it. The redundant
+     * {@code date <= :cursorDate} gives the optimizer the same range on the leading column.
+     *
+     * @param userId the owner of the records
+     * @param from only records dated at or after this instant
+     * @param cursorDate the date of the last record of the previous page, or the end of the date range
+     * @param cursorId the ID of the last record of the previous page, or {@link Long#MIN_VALUE}
+     *                 to include every record dated before {@code cursorDate}
+     * @param pageable limits the number of rows returned; its sort is ignored
+     * @return the views of the records, ordered by date and ID descending
+     */
+    @Query("""
+            select new com.challenge.operations.dto.RecordView(
+                r.id, o.type, r.amount, r.userBalance, r.operationResponse, r.date)
+            from RecordArchive r join r.operation o
+            where r.user.id = :userId
+              and r.deleted = false
+              and r.date >= :from
+              and r.date <= :cursorDate
+              and (r.date, r.id) < (:cursorDate, :cursorId)
+            order by r.date desc, r.id desc""")
+    List<RecordView> findPageDescending(@Param("userId") Long userId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("cursorDate") LocalDateTime cursorDate,
+                                        @Param("cursorId") Long cursorId,
+                                        Pageable pageable);
+
+    /**
+     * Returns the user's records of one operation that come before the cursor, newest
+     * first, seeking on the {@code (user_id, operation_id, date, id)} index.
+     * See {@link #findPageDescending} for the other parameters.
+     *
+     * @param operationId the operation of the records
+     * @return the views of the records, ordered by date and ID descending
+     */
+    @Query("""
+            select new com.challenge.operations.dto.RecordView(
+                r.id, o.type, r.amount, r.userBalance, r.operationResponse, r.date)
+            from RecordArchive r join r.operation o
+            where r.user.id = :userId
+              and r.operation.id = :operationId
+              and r.deleted = false
+              and r.date >= :from
+              and r.date <= :cursorDate
+              and (r.date, r.id) < (:cursorDate, :cursorId)
+            order by r.date desc, r.id desc""")
+    List<RecordView> findPageDescendingByOperation(@Param("userId") Long userId,
+                                                   @Param("operationId") Long operationId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("cursorDate") LocalDateTime cursorDate,
+                                                   @Param("cursorId") Long cursorId,
+                                                   Pageable pageable);
+
+    /**
+     * Returns the user's records that come after the cursor, oldest first. The mirror of
+     * {@link #findPageDescending}: the first page uses the start of the date range as its
+     * cursor.
+     *
+     * @param userId the owner of the records
+     * @param to only records dated before this instant
+     * @param cursorDate the date of the last record of the previous page, or the start of the date range
+     * @param cursorId the ID of the last record of the previous page, or {@link Long#MIN_VALUE}
+     *                 to include every record dated at or after {@code cursorDate}
+     * @param pageable limits the number of rows returned; its sort is ignored
+     * @return the views of the records, ordered by date and ID ascending
+     */
+    @Query("""
+            select new com.challenge.operations.dto.RecordView(
+                r.id, o.type, r.amount, r.userBalance, r.operationResponse, r.date)
+            from RecordArchive r join r.operation o
+            where r.user.id = :userId
+              and r.deleted = false
+              and r.date < :to
+              and r.date >= :cursorDate
+              and (r.date, r.id) > (:cursorDate, :cursorId)
+            order by r.date asc, r.id asc""")
+    List<RecordView> findPageAscending(@Param("userId") Long userId,
+                                       @Param("to") LocalDateTime to,
+                                       @Param("cursorDate") LocalDateTime cursorDate,
+                                       @Param("cursorId") Long cursorId,
+                                       Pageable pageable);
+
+    /**
+     * Returns the user's records of one operation that come after the cursor, oldest first.
+     * See {@link #findPageAscending} for the other parameters.
+     *
+     * @param operationId the operation of the records
+     * @return the views of the records, ordered by date and ID ascending
+     */
+    @Query("""
+            select new com.challenge.operations.dto.RecordView(
+                r.id, o.type, r.amount, r.userBalance, r.operationResponse, r.date)
+            from RecordArchive r join r.operation o
+            where r.user.id = :userId
+              and r.operation.id = :operationId
+              and r.deleted = false
+              and r.date < :to
+              and r.date >= :cursorDate
+              and (r.date, r.id) > (:cursorDate, :cursorId)
+            order by r.date asc, r.id asc""")
+    List<RecordView> findPageAscendingByOperation(@Param("userId") Long userId,
+                                                  @Param("operationId") Long operationId,
+                                                  @Param("to") LocalDateTime to,
+                                                  @Param("cursorDate") LocalDateTime cursorDate,
+                                                  @Param("cursorId") Long cursorId,
+                                                  Pageable pageable);
+
+    /**
+     * Returns the owner of a record that has not been soft-deleted.
+     *
+     * @param id the ID of the record
+     * @return the ID of the owner, or an empty Optional if there is no such record
+     */
+    @Query("select r.user.id from RecordArchive r where r.id = :id and r.deleted = false")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    /**
+     * Deletes the listed records that belong to the user; other IDs and records already
+     * soft-deleted are ignored.
+     *
+     * @return the number of records deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from RecordArchive r where r.user.id = :userId and r.id in :ids and r.deleted = false")
+    int deleteOwned(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    /**
+     * Marks the listed records that belong to the user as deleted; other IDs are ignored.
+     *
+     * @return the number of records marked
+     */
+    @Transactional
+    @Modifying
+    @Query("update RecordArchive r set r.deleted = true where r.user.id = :userId and r.id in :ids and r.deleted = false")
+    int softDeleteOwned(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes the user's records that match the filters; null filters match everything.
+     * Records already soft-deleted are left alone.
+     *
+     * @return the number of records deleted
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            delete from RecordArchive r
+            where r.user.id = :userId
+              and r.deleted = false
+              and (:operationId is null or r.operation.id = :operationId)
+              and (:from is null or r.date >= :from)
+              and (:to is null or r.date < :to)""")
+    int deleteOwnedMatching(@Param("userId") Long userId,
+                            @Param("operationId") Long operationId,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to);
+
+    /**
+     * Marks the user's records that match the filters as deleted; null filters match everything.
+     *
+     * @return the number of records marked
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update RecordArchive r set r.deleted = true
+            where r.user.id = :userId
+              and r.deleted = false
+              and (:operationId is null or r.operation.id = :operationId)
+              and (:from is null or r.date >= :from)
+              and (:to is null or r.date < :to)""")
+    int softDeleteOwnedMatching(@Param("userId") Long userId,
+                                @Param("operationId") Long operationId,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to);
+
+    /**
+     * Returns the date of the newest archived record. Every record that has been archived
+     * is at most this recent, which tells listings when the archive can be skipped.
+     *
+     * @return the newest archived date, or an empty Optional if the archive is empty
+     */
+    @Query("select max(r.date) from RecordArchive r")
+    Optional<LocalDateTime> findNewestDate();
+
+    /**
+     * Copies the given rows of {@code record} into the archive.
+     *
+     * @param ids the IDs of the records to copy
+     * @return the number of rows copied
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into record_archive (id, user_id, operation_id, amount, user_balance, operation_response, date, deleted)
+            select id, user_id, operation_id, amount, user_balance, operation_response, date, deleted
+            from record where id in (:ids)""", nativeQuery = true)
+    int copyFromRecords(@Param("ids") Collection<Long> ids);
+}
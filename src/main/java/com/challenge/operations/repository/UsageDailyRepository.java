@@ -0,0 +1,64 @@
+package com.challenge.operations.repository;
+
+import com.challenge.operations.entity.UsageDaily;
+import com.challenge.operations.entity.UsageDailyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * UsageDailyRepository provides access to the per-user, per-day, per-operation-type usage
+ * aggregates.
+ */
+public interface UsageDailyRepository extends JpaRepository<UsageDaily, UsageDailyId> {
+
+    /**
+     * Adds operations to the aggregate row of the user, day and type, creating the row
+     * if it does not exist yet. The increment is done by the database in one statement, so
+     * concurrent operations never lose updates.
+     *
+     * @param userId the user charged for the operation
+     * @param usageDate the day of the operation
+     * @param operationType the type of the operation, e.g. {@code "add"}
+     * @param count the number of operations to add
+     * @param amount the amount charged for them
+     * @return the number of rows affected
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            insert into usage_daily (user_id, usage_date, operation_type, operation_count, total_amount)
+            values (:userId, :usageDate, :operationType, :count, :amount)
+            on duplicate key update operation_count = operation_count + values(operation_count),
+                                    total_amount = total_amount + values(total_amount)""", nativeQuery = true)
+    int increment(@Param("userId") Long userId,
+                  @Param("usageDate") LocalDate usageDate,
+                  @Param("operationType") String operationType,
+                  @Param("count") long count,
+                  @Param("amount") BigDecimal amount);
+
+    /**
+     * Returns the user's aggregate rows from the given day on.
+     *
+     * @param userId the user
+     * @param since the first day to include
+     * @return the rows, ordered by day
+     */
+    @Query("select u from UsageDaily u where u.id.userId = :userId and u.id.usageDate >= :since order by u.id.usageDate")
+    List<UsageDaily> findByUserSince(@Param("userId") Long userId, @Param("since") LocalDate since);
+
+    /**
+     * Returns the user's total charges over all time.
+     *
+     * @param userId the user
+     * @return the sum of all charges, or null if the user has no usage
+     */
+    @Query("select sum(u.totalAmount) from UsageDaily u where u.id.userId = :userId")
+    BigDecimal sumTotalAmount(@Param("userId") Long userId);
+}
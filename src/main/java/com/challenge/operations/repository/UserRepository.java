@@ -1,8 +1,15 @@
 package com.challenge.operations.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import com.challenge.operations.entity.User;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -14,4 +21,46 @@ import java.util.Optional;
  */
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    /**
+     * Atomically subtracts the given amount from the user's balance if the balance covers it.
+     *
+     * @param id the ID of the user to debit
+     * @param amount the amount to subtract
+     * @return 1 if the balance was debited, 0 if the user does not exist or the balance is insufficient
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.balance = u.balance - :amount where u.id = :id and u.balance >= :amount")
+    int debitBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Atomically adds the given amount to the user's balance.
+     *
+     * @param id the ID of the user to credit
+     * @param amount the amount to add
+     * @return 1 if the balance was credited, 0 if the user does not exist
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.balance = u.balance + :amount where u.id = :id")
+    int creditBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Reads only the balance column of a user.
+     *
+     * @param id the ID of the user
+     * @return the balance, or an empty Optional if the user does not exist
+     */
+    @Query("select u.balance from User u where u.id = :id")
+    Optional<BigDecimal> findBalanceById(@Param("id") Long id);
+
+    /**
+     * Reads the ID and balance of each of the given users.
+     *
+     * @param ids the IDs of the users
+     * @return one {@code [id, balance]} pair per existing user
+     */
+    @Query("select u.id, u.balance from User u where u.id in :ids")
+    List<Object[]> findBalancesByIdIn(@Param("ids") Collection<Long> ids);
 }
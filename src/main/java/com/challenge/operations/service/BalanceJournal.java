@@ -0,0 +1,170 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.entity.BalanceEntry;
+import com.challenge.operations.exception.InsufficientBalanceException;
+import com.challenge.operations.repository.BalanceEntryRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Optional append-only balance mode.
+ *
+ * When enabled, balance changes are inserted into {@code balance_entry} instead of updating
+ * the user's row, and every change is kept as history. {@code User.balance} becomes a
+ * snapshot that a scheduled compactor advances by folding entries into it in batches; the
+ * current balance is the snapshot plus the entries not folded in yet.
+ *
+ * Credits are plain inserts and never wait for each other. Debits do: a debit must not
+ * overdraw the balance, so it reads the balance with a locking read of the user's row and
+ * its uncompacted entries and inserts its entry in the caller's transaction. Debits of the
+ * same user therefore still serialize on that lock until the caller's transaction ends, on
+ * every instance, exactly like the conditional UPDATE of the default mode; a rollback
+ * removes the entry together with the rest of the work. The locking read also sums the
+ * uncompacted entries, which the compaction interval keeps to a few index rows per user,
+ * so a debit costs somewhat more than in the default mode. This mode does not make debits
+ * of one user faster than the conditional UPDATE; it helps when credits dominate or when
+ * the history of changes is wanted, and is off by default.
+ */
+@Service
+public class BalanceJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceJournal.class);
+
+    @Autowired
+    private BalanceEntryRepository entryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${balance.journal.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Largest number of entries folded into the stored balances per transaction.
+     */
+    @Value("${balance.journal.compaction-batch-size:5000}")
+    private int compactionBatchSize = 5000;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Creates the template for the compaction transactions.
+     */
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Indicates whether balances are kept as a journal of entries.
+     *
+     * @return true if the journal is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the current balance of a user.
+     *
+     * @param userId the ID of the user
+     * @return the stored balance plus the entries not compacted yet
+     * @throws IllegalArgumentException if no user is found with the provided ID
+     */
+    public BigDecimal balance(Long userId) {
+        return entryRepository.findCurrentBalance(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found."));
+    }
+
+    /**
+     * Debits the given amount if the balance covers it. Joins the caller's transaction, and
+     * the user's row stays locked until that transaction ends.
+     *
+     * @param userId the ID of the user to debit
+     * @param amount the amount to subtract
+     * @return the user's balance after the debit
+     * @throws IllegalArgumentException if no user is found with the provided ID
+     * @throws InsufficientBalanceException if the balance does not cover the amount
+     */
+    @Transactional
+    public BigDecimal debit(Long userId, BigDecimal amount) {
+        BigDecimal current = entryRepository.lockCurrentBalance(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found."));
+        if (current.compareTo(amount) < 0) {
+            throw new InsufficientBalanceException("Insufficient balance to carry out the operation.");
+        }
+        append(userId, amount.negate(), BalanceEntry.Kind.DEBIT);
+        return current.subtract(amount);
+    }
+
+    /**
+     * Credits the given amount; credits need no balance check and are a single insert. The
+     * user is not looked up, so the caller must know that it exists.
+     *
+     * @param userId the ID of the user to credit
+     * @param amount the amount to add
+     */
+    @Transactional
+    public void credit(Long userId, BigDecimal amount) {
+        append(userId, amount, BalanceEntry.Kind.CREDIT);
+    }
+
+    /**
+     * Folds the entries not compacted yet into the balances stored on their users, one batch
+     * per transaction. Each entry is marked in the same transaction that adds it to the stored
+     * balance, so it is counted exactly once; entries of transactions still running are not
+     * visible yet and are left for the next run.
+     *
+     * @return the number of entries compacted
+     */
+    @Scheduled(fixedDelayString = "${balance.journal.compaction-interval-ms:10000}")
+    public synchronized int compact() {
+        if (!enabled) {
+            return 0;
+        }
+        int total = 0;
+        while (true) {
+            Integer compacted = transactionTemplate.execute(status -> {
+                List<Long> ids = entryRepository.findUncompactedIds(PageRequest.of(0, compactionBatchSize));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                entryRepository.addToStoredBalances(ids);
+                return entryRepository.markCompacted(ids);
+            });
+            if (compacted == null || compacted == 0) {
+                break;
+            }
+            total += compacted;
+            if (compacted < compactionBatchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.debug("Compacted {} balance entries", total);
+        }
+        return total;
+    }
+
+    private void append(Long userId, BigDecimal amount, BalanceEntry.Kind kind) {
+        BalanceEntry entry = new BalanceEntry();
+        entry.setUserId(userId);
+        entry.setAmount(amount);
+        entry.setKind(kind);
+        entry.setCreatedAt(LocalDateTime.now());
+        entryRepository.save(entry);
+    }
+}
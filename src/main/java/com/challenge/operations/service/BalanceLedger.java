@@ -0,0 +1,565 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.dto.BalanceLedgerStatsDTO;
+import com.challenge.operations.exception.InsufficientBalanceException;
+import com.challenge.operations.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-memory balance engine.
+ *
+ * When enabled, the balance of every user that spends is loaded once and then kept in
+ * memory as a count of minor units (cents for the default scale of 2). Debits and credits
+ * are compare-and-set updates of that count, so concurrent debits of the same user never
+ * overdraw it, and each change is appended to a local write-ahead log before it is
+ * acknowledged. A scheduled flusher writes the net change of every touched user to the
+ * {@code user} table in one batch, together with a checkpoint naming the last log segment
+ * it covers; segments above the checkpoint are replayed at startup, so a crash loses no
+ * acknowledged debit and never applies one twice.
+ *
+ * The database stays the source of truth for balances changed outside this class: a
+ * periodic consistency check compares every in-memory balance without pending changes to
+ * its row and reloads the ones that differ.
+ */
+@Service
+public class BalanceLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceLedger.class);
+
+    private static final String SEGMENT_PREFIX = "balance-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private static final String APPLY_DELTA_SQL = "update user set balance = balance + ? where id = ?";
+    private static final String READ_CHECKPOINT_SQL = "select last_segment from balance_ledger_checkpoint where id = 1";
+    private static final String WRITE_CHECKPOINT_SQL = "insert into balance_ledger_checkpoint (id, last_segment) values (1, ?) "
+            + "on duplicate key update last_segment = values(last_segment)";
+
+    private static final int CHECK_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${balance.ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${balance.ledger.scale:2}")
+    private int scale = 2;
+
+    @Value("${balance.ledger.wal-dir:${java.io.tmpdir}/operations-balance}")
+    private String walDir;
+
+    @Value("${balance.ledger.fsync:false}")
+    private boolean fsync;
+
+    /**
+     * In-memory balances by user ID; the map's bins stripe concurrent loads and updates.
+     */
+    private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Users with changes not yet written to the database.
+     */
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Held shared by every balance change and exclusively while the flusher takes the pending
+     * changes and rotates the log, so a change is always in the segment its delta is flushed with.
+     */
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    /**
+     * Guards the open log segment.
+     */
+    private final Object walLock = new Object();
+    private FileChannel walChannel;
+    private Path walPath;
+    private long walSegment;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong debits = new AtomicLong();
+    private final AtomicLong rejectedDebits = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong flushedChanges = new AtomicLong();
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong mismatches = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    /**
+     * The in-memory state of one user: the current balance and the part of it not yet
+     * written to the database, both in minor units.
+     */
+    static final class Account {
+        final AtomicLong balance;
+        final AtomicLong unflushed = new AtomicLong();
+
+        Account(long balance) {
+            this.balance = new AtomicLong(balance);
+        }
+    }
+
+    /**
+     * Replays log segments left by a previous run and opens a new segment.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            Files.createDirectories(Paths.get(walDir));
+            recoverSegments();
+            synchronized (walLock) {
+                openSegment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not prepare the balance log directory " + walDir, e);
+        }
+    }
+
+    /**
+     * Writes the pending changes and closes the log. Changes that cannot be written stay in
+     * the log and are replayed at the next startup.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        synchronized (walLock) {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Indicates whether balances are kept in memory instead of updated in the database.
+     *
+     * @return true if the ledger is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the current balance of a user, loading it from the database on first use.
+     *
+     * @param userId the ID of the user
+     * @return the balance, including changes not yet written to the database
+     * @throws IllegalArgumentException if no user is found with the provided ID
+     */
+    public BigDecimal balance(Long userId) {
+        return toDecimal(account(userId).balance.get());
+    }
+
+    /**
+     * Debits the given amount from the user's balance if the balance covers it.
+     *
+     * Inside a transaction, the debit is credited back if the transaction rolls back, so an
+     * operation that fails after paying leaves the balance as it was.
+     *
+     * @param userId the ID of the user to debit
+     * @param amount the amount to subtract, with at most {@code scale} decimal places
+     * @return the user's balance after the debit
+     * @throws IllegalArgumentException if no user is found with the provided ID or the amount is invalid
+     * @throws InsufficientBalanceException if the balance does not cover the amount
+     */
+    public BigDecimal debit(Long userId, BigDecimal amount) {
+        long minor = toMinor(amount);
+        if (minor < 0) {
+            throw new IllegalArgumentException("The debit amount must not be negative.");
+        }
+
+        long next;
+        // Load a missing balance before taking the lock, so the read does not hold up a flush
+        account(userId);
+        flushLock.readLock().lock();
+        try {
+            Account account = account(userId);
+            while (true) {
+                long current = account.balance.get();
+                if (current < minor) {
+                    rejectedDebits.incrementAndGet();
+                    throw new InsufficientBalanceException("Insufficient balance to carry out the operation.");
+                }
+                next = current - minor;
+                if (account.balance.compareAndSet(current, next)) {
+                    break;
+                }
+            }
+            log(userId, account, -minor);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        debits.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        credit(userId, amount);
+                    }
+                }
+            });
+        }
+        return toDecimal(next);
+    }
+
+    /**
+     * Adds the given amount to the user's balance.
+     *
+     * @param userId the ID of the user to credit
+     * @param amount the amount to add, with at most {@code scale} decimal places
+     * @return the user's balance after the credit
+     * @throws IllegalArgumentException if no user is found with the provided ID or the amount is invalid
+     */
+    public BigDecimal credit(Long userId, BigDecimal amount) {
+        long minor = toMinor(amount);
+        if (minor < 0) {
+            throw new IllegalArgumentException("The credit amount must not be negative.");
+        }
+
+        account(userId);
+        flushLock.readLock().lock();
+        try {
+            Account account = account(userId);
+            long next = account.balance.addAndGet(minor);
+            log(userId, account, minor);
+            return toDecimal(next);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the net balance change of every touched user to the database in one batch.
+     *
+     * If the batch fails, the changes are kept pending and retried by the next flush, whose
+     * checkpoint then covers the segments of both.
+     *
+     * @return the number of users whose balance was written
+     */
+    @Scheduled(fixedDelayString = "${balance.ledger.flush-interval-ms:500}")
+    public synchronized int flush() {
+        if (!enabled) {
+            return 0;
+        }
+
+        Map<Long, Long> deltas = new HashMap<>();
+        long segment;
+        flushLock.writeLock().lock();
+        try {
+            if (dirty.isEmpty()) {
+                return 0;
+            }
+            for (Long userId : dirty) {
+                long delta = accounts.get(userId).unflushed.getAndSet(0);
+                if (delta != 0) {
+                    deltas.put(userId, delta);
+                }
+            }
+            dirty.clear();
+            synchronized (walLock) {
+                segment = walSegment;
+                closeSegment();
+                openSegmentQuietly();
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        long started = System.currentTimeMillis();
+        try {
+            applyDeltas(deltas, segment);
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            logger.error("Could not flush the balances of {} users, retrying with the next flush", deltas.size(), e);
+            deltas.forEach((userId, delta) -> {
+                accounts.get(userId).unflushed.addAndGet(delta);
+                dirty.add(userId);
+            });
+            return 0;
+        }
+        lastFlushMillis = System.currentTimeMillis() - started;
+        flushes.incrementAndGet();
+        flushedChanges.addAndGet(deltas.size());
+        deleteSegmentsUpTo(segment);
+        return deltas.size();
+    }
+
+    /**
+     * Compares the in-memory balances without pending changes to the database and reloads
+     * the ones that differ, e.g. because the balance was changed by another instance or by hand.
+     * The balances are snapshotted under the flush lock and compared outside it, so balance
+     * changes do not wait for the database; a balance that changed since the snapshot is left
+     * for the next check.
+     *
+     * @return the number of balances that differed
+     */
+    @Scheduled(fixedDelayString = "${balance.ledger.check-interval-ms:60000}")
+    public synchronized int checkConsistency() {
+        if (!enabled) {
+            return 0;
+        }
+        flush();
+
+        Map<Long, Long> snapshot = new HashMap<>();
+        flushLock.writeLock().lock();
+        try {
+            accounts.forEach((userId, account) -> {
+                if (account.unflushed.get() == 0 && !dirty.contains(userId)) {
+                    snapshot.put(userId, account.balance.get());
+                }
+            });
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        int found = 0;
+        List<Long> clean = new ArrayList<>(snapshot.keySet());
+        for (int from = 0; from < clean.size(); from += CHECK_CHUNK_SIZE) {
+            List<Long> chunk = clean.subList(from, Math.min(from + CHECK_CHUNK_SIZE, clean.size()));
+            Map<Long, BigDecimal> stored = new HashMap<>();
+            for (Object[] row : userRepository.findBalancesByIdIn(chunk)) {
+                stored.put((Long) row[0], (BigDecimal) row[1]);
+            }
+            for (Long userId : chunk) {
+                BigDecimal balance = stored.get(userId);
+                long snapshotted = snapshot.get(userId);
+                if (balance != null && toMinor(balance) == snapshotted) {
+                    continue;
+                }
+                if (reconcile(userId, snapshotted, balance)) {
+                    found++;
+                }
+            }
+        }
+        checks.incrementAndGet();
+        mismatches.addAndGet(found);
+        return found;
+    }
+
+    // Replaces a balance that differs from the database, unless it changed since it was
+    // snapshotted; a null stored balance means the user is gone
+    private boolean reconcile(Long userId, long snapshotted, BigDecimal stored) {
+        flushLock.writeLock().lock();
+        try {
+            Account account = accounts.get(userId);
+            if (account == null || account.balance.get() != snapshotted
+                    || account.unflushed.get() != 0 || dirty.contains(userId)) {
+                return false;
+            }
+            if (stored == null) {
+                accounts.remove(userId);
+                return false;
+            }
+            logger.warn("Balance of user {} is {} in memory but {} in the database; reloading",
+                    userId, toDecimal(snapshotted), stored);
+            account.balance.set(toMinor(stored));
+            return true;
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the size and flush counters of the ledger.
+     *
+     * @return a snapshot of the ledger statistics
+     */
+    public BalanceLedgerStatsDTO stats() {
+        return new BalanceLedgerStatsDTO(enabled, accounts.size(), dirty.size(), debits.get(), rejectedDebits.get(),
+                flushes.get(), failedFlushes.get(), flushedChanges.get(), lastFlushMillis, checks.get(), mismatches.get());
+    }
+
+    // Loads the balance outside the map, so the query never runs while a bin of the map is
+    // locked; of two concurrent loads of the same user, the first one stored wins
+    private Account account(Long userId) {
+        Account account = accounts.get(userId);
+        if (account != null) {
+            return account;
+        }
+        Account loaded = new Account(toMinor(userRepository.findBalanceById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found."))));
+        Account existing = accounts.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    // Caller holds the read lock; the balance has already been changed and is restored if logging fails
+    private void log(Long userId, Account account, long delta) {
+        byte[] line = (userId + " " + delta + "\n").getBytes(StandardCharsets.US_ASCII);
+        synchronized (walLock) {
+            try {
+                if (walChannel == null) {
+                    openSegment();
+                }
+                walChannel.write(ByteBuffer.wrap(line));
+                if (fsync) {
+                    walChannel.force(false);
+                }
+            } catch (IOException e) {
+                account.balance.addAndGet(-delta);
+                throw new UncheckedIOException("Could not append to balance log " + walPath, e);
+            }
+        }
+        account.unflushed.addAndGet(delta);
+        dirty.add(userId);
+    }
+
+    private void applyDeltas(Map<Long, Long> deltas, long segment) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((userId, delta) -> args.add(new Object[]{toDecimal(delta), userId}));
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!args.isEmpty()) {
+                jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, args);
+            }
+            jdbcTemplate.update(WRITE_CHECKPOINT_SQL, segment);
+        });
+    }
+
+    // Applies the segments newer than the checkpoint in one transaction, then deletes every segment
+    private void recoverSegments() throws IOException {
+        List<Long> stored = jdbcTemplate.queryForList(READ_CHECKPOINT_SQL, Long.class);
+        long checkpoint = stored.isEmpty() ? 0 : stored.get(0);
+
+        Map<Long, Long> deltas = new HashMap<>();
+        long newest = checkpoint;
+        for (Path segment : listSegments()) {
+            long sequence = sequenceOf(segment);
+            newest = Math.max(newest, sequence);
+            if (sequence <= checkpoint) {
+                continue;
+            }
+            // A crash can leave the last line half written; its change was never acknowledged
+            String content = Files.readString(segment, StandardCharsets.US_ASCII);
+            content.substring(0, content.lastIndexOf('\n') + 1).lines().forEach(line -> {
+                String[] fields = line.split(" ");
+                try {
+                    deltas.merge(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long::sum);
+                } catch (RuntimeException e) {
+                    logger.warn("Skipping unreadable line in balance log {}", segment);
+                }
+            });
+        }
+        if (newest > checkpoint) {
+            applyDeltas(deltas, newest);
+            logger.info("Recovered balance changes of {} users from the balance log", deltas.size());
+        }
+        deleteSegmentsUpTo(newest);
+        walSegment = newest + 1;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(Paths.get(walDir))) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void deleteSegmentsUpTo(long sequence) {
+        try {
+            for (Path segment : listSegments()) {
+                if (sequenceOf(segment) <= sequence) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        } catch (IOException e) {
+            // Leftover segments are at or below the checkpoint and are skipped at startup
+            logger.warn("Could not delete flushed balance log segments in {}", walDir, e);
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Caller holds walLock
+    private void openSegment() throws IOException {
+        walPath = Paths.get(walDir, String.format("%s%019d%s", SEGMENT_PREFIX, walSegment, SEGMENT_SUFFIX));
+        walChannel = FileChannel.open(walPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    // Caller holds walLock
+    private void openSegmentQuietly() {
+        walSegment++;
+        try {
+            openSegment();
+        } catch (IOException e) {
+            // Retried by the next balance change
+            logger.error("Could not open a new balance log segment in {}", walDir, e);
+        }
+    }
+
+    // Caller holds walLock
+    private void closeSegment() {
+        if (walChannel == null) {
+            return;
+        }
+        try {
+            walChannel.close();
+        } catch (IOException e) {
+            logger.warn("Could not close balance log segment {}", walPath, e);
+        }
+        walChannel = null;
+    }
+
+    private long toMinor(BigDecimal amount) {
+        try {
+            return amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amounts must have at most " + scale + " decimal places.");
+        }
+    }
+
+    private BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, scale);
+    }
+}
@@ -1,14 +1,19 @@
 package com.challenge.operations.service;
 
 import com.challenge.operations.entity.User;
+import com.challenge.operations.jwt.AuthenticatedUser;
+import com.challenge.operations.jwt.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 /**
  * CustomUserDetailsService is an implementation of the UserDetailsService interface,
@@ -16,7 +21,9 @@ import java.util.Collections;
  *
  * This class primarily interacts with the UserService to retrieve user details
  * based on the username and prepares the UserDetails object required by
- * Spring Security for authentication and authorization purposes.
+ * Spring Security for authentication and authorization purposes. Principals are
+ * served from a short-lived {@link PrincipalCache}, so most requests do not read the
+ * user table to authenticate.
  */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -30,22 +37,42 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserService userService;
 
+    /**
+     * Recently loaded principals, evicted by {@link UserService} when a user changes.
+     */
+    @Autowired
+    private PrincipalCache principalCache;
+
+    /**
+     * Users granted ROLE_ADMIN in addition to ROLE_USER, e.g. to read the metrics.
+     */
+    @Value("${security.admin-usernames:}")
+    private Set<String> adminUsernames = Set.of();
+
     /**
      * Loads the user details for the given username.
      *
      * @param username the username of the user whose details are to be loaded
-     * @return the UserDetails object containing user information such as username, password, and roles
+     * @return the AuthenticatedUser object containing user information such as ID, username, password, and roles
      * @throws UsernameNotFoundException if the user with the given username is not found
      */
     @Override
-    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    public AuthenticatedUser loadUserByUsername(String username) throws UsernameNotFoundException {
+        return principalCache.get(username, this::loadFromDatabase);
+    }
+
+    private AuthenticatedUser loadFromDatabase(String username) {
         User user = userService.findByUsername(username);
 
         if (user == null) {
             throw new UsernameNotFoundException("User not found with name: " + username);
         }
 
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(),
-                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+        if (adminUsernames.contains(user.getUsername())) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword(), authorities);
     }
 }
@@ -0,0 +1,472 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.dto.HoldDTO;
+import com.challenge.operations.entity.BalanceHold;
+import com.challenge.operations.exception.InsufficientBalanceException;
+import com.challenge.operations.repository.BalanceHoldRepository;
+import com.challenge.operations.util.TimerWheel;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reserve-then-capture charging.
+ *
+ * A hold debits an amount from the user's balance once. Operations run against the hold are
+ * charged from it in memory, without touching the user's balance, and when the hold is
+ * captured the part not consumed is credited back. Holds that are never captured are
+ * settled the same way when they expire; expiry deadlines are kept on a {@link TimerWheel}
+ * advanced once per tick.
+ *
+ * A charge made inside a transaction is pending until that transaction ends: it counts
+ * against the rest of the hold, but only becomes consumption once committed, and a hold is
+ * settled only after its pending charges have ended, so a capture never bills an operation
+ * that is later rolled back.
+ *
+ * Open holds live in memory on the instance that placed them, and their row records that
+ * instance. Their consumption is written to {@code balance_hold} at most once per tick, not
+ * in the transaction of each charge, so that charges to the same hold do not queue on its
+ * row. When an instance restarts it releases the holds it still owns, and every instance
+ * periodically releases holds that expired more than {@code release-grace-seconds} ago,
+ * which covers instances that never come back. Both release with the consumption last
+ * written: a crash forgives the charges committed since the last tick, at most one tick of
+ * consumption, but never loses the reserved amount. Settling is a conditional update of the
+ * row, so a hold is credited back once even when two instances race to release it.
+ */
+@Service
+public class HoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HoldService.class);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BalanceHoldRepository holdRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Lifetime of a hold when the request does not choose one.
+     */
+    @Value("${operation.hold.default-ttl-seconds:300}")
+    private long defaultTtlSeconds = 300;
+
+    /**
+     * Longest lifetime a request may ask for.
+     */
+    @Value("${operation.hold.max-ttl-seconds:3600}")
+    private long maxTtlSeconds = 3600;
+
+    /**
+     * Resolution of hold expiry, and how often consumption is written to the database.
+     */
+    @Value("${operation.hold.tick-ms:1000}")
+    private long tickMillis = 1000;
+
+    /**
+     * Number of buckets of the expiry wheel; one turn covers {@code tick-ms * wheel-size}.
+     */
+    @Value("${operation.hold.wheel-size:512}")
+    private int wheelSize = 512;
+
+    /**
+     * How long a capture waits for the hold's pending charges to commit or roll back.
+     */
+    @Value("${operation.hold.capture-wait-ms:10000}")
+    private long captureWaitMillis = 10_000;
+
+    /**
+     * Name this instance records on the holds it places; the host name when empty. Must be
+     * stable across restarts and unique among the instances sharing the database.
+     */
+    @Value("${operation.hold.instance-id:}")
+    private String instanceId = "";
+
+    /**
+     * How long after its expiry a hold left open by another instance is released.
+     */
+    @Value("${operation.hold.release-grace-seconds:60}")
+    private long releaseGraceSeconds = 60;
+
+    private final ConcurrentHashMap<String, ActiveHold> holds = new ConcurrentHashMap<>();
+    private TimerWheel<ActiveHold> wheel;
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * In-memory state of an open hold; mutable fields are guarded by the hold itself.
+     */
+    static final class ActiveHold {
+        final String id;
+        final Long userId;
+        final BigDecimal amount;
+        final BigDecimal balanceAfterPlacement;
+        final LocalDateTime expiresAt;
+        BigDecimal consumed = BigDecimal.ZERO;
+        BigDecimal pending = BigDecimal.ZERO;
+        BigDecimal persistedConsumed = BigDecimal.ZERO;
+        BalanceHold.Status status = BalanceHold.Status.OPEN;
+        boolean closing;
+        TimerWheel.Timeout timeout;
+
+        ActiveHold(String id, Long userId, BigDecimal amount, BigDecimal balanceAfterPlacement, LocalDateTime expiresAt) {
+            this.id = id;
+            this.userId = userId;
+            this.amount = amount;
+            this.balanceAfterPlacement = balanceAfterPlacement;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Creates the expiry wheel and releases the holds this instance left open before a restart.
+     */
+    @PostConstruct
+    public void start() {
+        wheel = new TimerWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = localHostName();
+        }
+
+        int released = release(holdRepository.findByStatusAndOwner(BalanceHold.Status.OPEN, instanceId));
+        if (released > 0) {
+            logger.info("Released {} holds left open by a previous run of {}", released, instanceId);
+        }
+        releaseAbandoned();
+    }
+
+    /**
+     * Releases the holds that expired long ago without being settled, typically because the
+     * instance that placed them is gone.
+     */
+    @Scheduled(fixedDelayString = "${operation.hold.sweep-interval-ms:60000}")
+    public void releaseAbandoned() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(releaseGraceSeconds);
+        int released = release(holdRepository.findByStatusAndExpiresAtBefore(BalanceHold.Status.OPEN, cutoff));
+        if (released > 0) {
+            logger.info("Released {} abandoned holds that expired before {}", released, cutoff);
+        }
+    }
+
+    /**
+     * Reserves an amount from the user's balance.
+     *
+     * @param userId the ID of the user
+     * @param amount the amount to reserve; it is debited immediately
+     * @param ttlSeconds the lifetime of the hold, or null for the configured default
+     * @return the new hold
+     * @throws IllegalArgumentException if the amount or lifetime is invalid, or the user is not found
+     * @throws InsufficientBalanceException if the balance does not cover the amount
+     */
+    @Transactional
+    public HoldDTO place(Long userId, BigDecimal amount, Long ttlSeconds) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("The hold amount must be positive.");
+        }
+        long ttl = ttlSeconds != null ? ttlSeconds : defaultTtlSeconds;
+        if (ttl < 1 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("The hold lifetime must be between 1 and " + maxTtlSeconds + " seconds.");
+        }
+
+        BigDecimal balance = userService.debitBalance(userId, amount);
+
+        LocalDateTime now = LocalDateTime.now();
+        BalanceHold entity = new BalanceHold();
+        entity.setId(UUID.randomUUID().toString());
+        entity.setUserId(userId);
+        entity.setAmount(amount);
+        entity.setStatus(BalanceHold.Status.OPEN);
+        entity.setOwner(instanceId);
+        entity.setCreatedAt(now);
+        entity.setExpiresAt(now.plusSeconds(ttl));
+        holdRepository.save(entity);
+
+        ActiveHold hold = new ActiveHold(entity.getId(), userId, amount, balance, entity.getExpiresAt());
+        // The hold can only be used once the debit is committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    activate(hold);
+                }
+            });
+        } else {
+            activate(hold);
+        }
+        return toDTO(hold);
+    }
+
+    /**
+     * Charges an operation to an open hold. Inside a transaction, the charge is pending until
+     * the transaction ends, and only counts as consumed if it commits.
+     *
+     * @param holdId the ID of the hold
+     * @param userId the ID of the user the hold must belong to
+     * @param cost the amount to charge
+     * @return the user's balance as it will be once the hold is settled: the balance after
+     *         the hold was placed plus the part of the hold not charged
+     * @throws IllegalArgumentException if the hold does not exist, belongs to another user or is settled
+     * @throws InsufficientBalanceException if the rest of the hold does not cover the cost
+     */
+    public BigDecimal consume(String holdId, Long userId, BigDecimal cost) {
+        ActiveHold hold = activeHold(holdId, userId);
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        BigDecimal balance;
+        synchronized (hold) {
+            if (hold.status != BalanceHold.Status.OPEN || hold.closing) {
+                throw new IllegalArgumentException("The hold is no longer open.");
+            }
+            BigDecimal charged = hold.consumed.add(hold.pending).add(cost);
+            if (charged.compareTo(hold.amount) > 0) {
+                throw new InsufficientBalanceException("The hold does not cover the operation.");
+            }
+            if (inTransaction) {
+                hold.pending = hold.pending.add(cost);
+            } else {
+                hold.consumed = hold.consumed.add(cost);
+            }
+            balance = hold.balanceAfterPlacement.add(hold.amount.subtract(charged));
+        }
+
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (hold) {
+                        hold.pending = hold.pending.subtract(cost);
+                        if (status == STATUS_COMMITTED) {
+                            hold.consumed = hold.consumed.add(cost);
+                        }
+                        hold.notifyAll();
+                    }
+                }
+            });
+        }
+        return balance;
+    }
+
+    /**
+     * Settles a hold: the part not consumed is credited back to the user. New charges are
+     * refused from the start of the capture, and charges still pending are waited for.
+     *
+     * @param holdId the ID of the hold
+     * @param userId the ID of the user the hold must belong to
+     * @return the settled hold
+     * @throws IllegalArgumentException if the hold does not exist, belongs to another user or
+     *                                  is settled, or if its pending charges do not end in time
+     */
+    public HoldDTO capture(String holdId, Long userId) {
+        ActiveHold hold = activeHold(holdId, userId);
+        synchronized (hold) {
+            if (hold.status != BalanceHold.Status.OPEN || hold.closing) {
+                throw new IllegalArgumentException("The hold is no longer open.");
+            }
+            hold.closing = true;
+            long deadline = System.currentTimeMillis() + captureWaitMillis;
+            try {
+                while (hold.pending.signum() > 0 && hold.status == BalanceHold.Status.OPEN) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    hold.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (hold.pending.signum() > 0 && hold.status == BalanceHold.Status.OPEN) {
+                hold.closing = false;
+                throw new IllegalArgumentException("The hold still has operations in progress.");
+            }
+        }
+        if (!settle(hold, BalanceHold.Status.CAPTURED)) {
+            throw new IllegalArgumentException("The hold is no longer open.");
+        }
+        return toDTO(hold);
+    }
+
+    /**
+     * Returns the state of a hold, open or settled.
+     *
+     * @param holdId the ID of the hold
+     * @param userId the ID of the user the hold must belong to
+     * @return the hold
+     * @throws IllegalArgumentException if the hold does not exist or belongs to another user
+     */
+    public HoldDTO get(String holdId, Long userId) {
+        ActiveHold hold = holds.get(holdId);
+        if (hold != null && hold.userId.equals(userId)) {
+            return toDTO(hold);
+        }
+        BalanceHold stored = holdRepository.findById(holdId)
+                .filter(h -> h.getUserId().equals(userId))
+                .orElseThrow(() -> new IllegalArgumentException("Hold not found."));
+        return new HoldDTO(stored.getId(), stored.getAmount(), stored.getConsumed(),
+                stored.getAmount().subtract(stored.getConsumed()), stored.getStatus(), stored.getExpiresAt());
+    }
+
+    /**
+     * Settles the holds whose deadline has passed and writes the consumption of the others.
+     */
+    @Scheduled(fixedDelayString = "${operation.hold.tick-ms:1000}")
+    public void tick() {
+        for (ActiveHold hold : wheel.advance(System.currentTimeMillis())) {
+            synchronized (hold) {
+                if (hold.pending.signum() > 0) {
+                    // Refuse new charges and settle once the pending ones have ended
+                    hold.closing = true;
+                    hold.timeout = wheel.schedule(hold, System.currentTimeMillis());
+                    continue;
+                }
+            }
+            try {
+                settle(hold, BalanceHold.Status.EXPIRED);
+            } catch (RuntimeException e) {
+                logger.error("Could not settle expired hold {}, retrying", hold.id, e);
+            }
+        }
+
+        for (ActiveHold hold : holds.values()) {
+            BigDecimal consumed;
+            synchronized (hold) {
+                if (hold.status != BalanceHold.Status.OPEN || hold.consumed.compareTo(hold.persistedConsumed) == 0) {
+                    continue;
+                }
+                consumed = hold.consumed;
+            }
+            try {
+                holdRepository.updateConsumed(hold.id, consumed);
+                synchronized (hold) {
+                    hold.persistedConsumed = consumed;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not write the consumption of hold {}", hold.id, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of open holds.
+     *
+     * @return the number of holds neither captured nor expired
+     */
+    public int openHolds() {
+        return holds.size();
+    }
+
+    private void activate(ActiveHold hold) {
+        holds.put(hold.id, hold);
+        hold.timeout = wheel.schedule(hold, hold.expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private ActiveHold activeHold(String holdId, Long userId) {
+        ActiveHold hold = holds.get(holdId);
+        if (hold == null || !hold.userId.equals(userId)) {
+            throw new IllegalArgumentException("Hold not found.");
+        }
+        return hold;
+    }
+
+    // Credits back the unused amount and marks the hold settled; false if it was already
+    // settled or has pending charges
+    private boolean settle(ActiveHold hold, BalanceHold.Status outcome) {
+        BigDecimal consumed;
+        synchronized (hold) {
+            if (hold.status != BalanceHold.Status.OPEN || hold.pending.signum() > 0) {
+                return false;
+            }
+            hold.status = outcome;
+            consumed = hold.consumed;
+        }
+        hold.timeout.cancel();
+        holds.remove(hold.id);
+
+        BigDecimal refund = hold.amount.subtract(consumed);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (holdRepository.settle(hold.id, outcome, consumed) == 0) {
+                    // Released by a sweep in the meantime
+                    logger.warn("Hold {} was already settled", hold.id);
+                    return;
+                }
+                if (refund.signum() > 0) {
+                    userService.creditBalance(hold.userId, refund);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Reopen the hold so the next tick settles it again
+            synchronized (hold) {
+                hold.status = BalanceHold.Status.OPEN;
+            }
+            holds.put(hold.id, hold);
+            hold.timeout = wheel.schedule(hold, System.currentTimeMillis());
+            throw e;
+        }
+        return true;
+    }
+
+    // Settles the stored holds as released and credits back their unused amount; returns
+    // how many this call settled
+    private int release(List<BalanceHold> stored) {
+        int released = 0;
+        for (BalanceHold hold : stored) {
+            if (holds.containsKey(hold.getId())) {
+                // Still open in memory here; the tick settles it
+                continue;
+            }
+            try {
+                Boolean settled = transactionTemplate.execute(status -> {
+                    if (holdRepository.settle(hold.getId(), BalanceHold.Status.RELEASED, hold.getConsumed()) == 0) {
+                        return false;
+                    }
+                    BigDecimal refund = hold.getAmount().subtract(hold.getConsumed());
+                    if (refund.signum() > 0) {
+                        userService.creditBalance(hold.getUserId(), refund);
+                    }
+                    return true;
+                });
+                if (Boolean.TRUE.equals(settled)) {
+                    released++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("Could not release hold {}", hold.getId(), e);
+            }
+        }
+        return released;
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Set operation.hold.instance-id, the host name is not available.", e);
+        }
+    }
+
+    private static HoldDTO toDTO(ActiveHold hold) {
+        synchronized (hold) {
+            return new HoldDTO(hold.id, hold.amount, hold.consumed,
+                    hold.amount.subtract(hold.consumed).subtract(hold.pending), hold.status, hold.expiresAt);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.entity.IdempotencyRecord;
+import com.challenge.operations.exception.IdempotencyConflictException;
+import com.challenge.operations.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Makes requests safe to retry.
+ *
+ * A client may send an {@code Idempotency-Key} header with a charging request. The response
+ * of the first request with a given key is kept for the key lifetime, and later requests
+ * with the same key and the same parameters get that response without being executed
+ * again. A duplicate that arrives while the first request is still running waits for it
+ * and shares its response, so concurrent retries are executed once. Failed requests are
+ * not remembered and can be retried with the same key.
+ *
+ * Responses are kept in a bounded in-memory map and, optionally, in the
+ * {@code idempotency_record} table so they survive a restart. The table row is written
+ * after the request's own transaction commits, so a crash between the two can still let
+ * one retry through.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    /**
+     * Name of the request header carrying the client's key.
+     */
+    public static final String HEADER = "Idempotency-Key";
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * How long the response of a key is kept.
+     */
+    @Value("${idempotency.ttl-ms:86400000}")
+    private long ttlMillis = 86_400_000;
+
+    /**
+     * Largest number of keys kept in memory; the oldest completed ones are dropped first.
+     */
+    @Value("${idempotency.max-entries:100000}")
+    private int maxEntries = 100_000;
+
+    /**
+     * Longest key accepted.
+     */
+    @Value("${idempotency.max-key-length:255}")
+    private int maxKeyLength = 255;
+
+    /**
+     * How long a duplicate waits for the original request to finish.
+     */
+    @Value("${idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMillis = 30_000;
+
+    /**
+     * Whether responses are also stored in the database.
+     */
+    @Value("${idempotency.persist:false}")
+    private boolean persist;
+
+    /**
+     * Entries by endpoint, user and key, in insertion order; guarded by {@code this}.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * One key: the parameters it was first used with and the response, once there is one.
+     */
+    private static final class Entry {
+        final String fingerprint;
+        final CompletableFuture<Object> response = new CompletableFuture<>();
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Runs an action once per key.
+     *
+     * @param scope the endpoint and user the key belongs to, e.g. {@code "execute:42"}
+     * @param key the client's key, or null to run the action unconditionally
+     * @param fingerprint identifies the request parameters, see {@link #fingerprint(Object...)}
+     * @param type the type of the response, used to read a stored response back
+     * @param action the work to do the first time the key is seen
+     * @param <T> the type of the response
+     * @return the response of the first request with the key
+     * @throws IllegalArgumentException if the key is malformed or was used with other parameters
+     * @throws IdempotencyConflictException if the first request with the key does not finish in time
+     */
+    public <T> T execute(String scope, String key, String fingerprint, Class<T> type, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > maxKeyLength) {
+            throw new IllegalArgumentException("The " + HEADER + " header must have between 1 and "
+                    + maxKeyLength + " characters.");
+        }
+
+        String id = scope + ":" + key;
+        Entry own = new Entry(fingerprint);
+        Entry existing;
+        synchronized (this) {
+            purge(System.currentTimeMillis());
+            existing = entries.get(id);
+            if (existing == null) {
+                entries.put(id, own);
+            }
+        }
+        if (existing != null) {
+            return replay(existing, fingerprint, type);
+        }
+
+        T response;
+        try {
+            Optional<T> stored = persist ? loadStored(id, fingerprint, type) : Optional.empty();
+            response = stored.isPresent() ? stored.get() : action.get();
+            if (persist && stored.isEmpty()) {
+                store(id, fingerprint, response);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                entries.remove(id, own);
+            }
+            own.response.completeExceptionally(e);
+            throw e;
+        }
+        own.expiresAt = System.currentTimeMillis() + ttlMillis;
+        own.response.complete(response);
+        return response;
+    }
+
+    /**
+     * Builds the fingerprint of a request from its parameters.
+     *
+     * @param parameters the parameters that define the request; nulls are allowed
+     * @return a hex SHA-256 hash of the parameters
+     */
+    public String fingerprint(Object... parameters) {
+        StringBuilder joined = new StringBuilder();
+        for (Object parameter : parameters) {
+            joined.append(parameter).append('\u0000');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(joined.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Deletes stored responses older than the key lifetime.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        if (!persist) {
+            return;
+        }
+        int deleted = recordRepository.deleteCreatedBefore(LocalDateTime.now().minus(Duration.ofMillis(ttlMillis)));
+        if (deleted > 0) {
+            logger.debug("Deleted {} expired idempotency records", deleted);
+        }
+    }
+
+    /**
+     * Returns the number of keys held in memory.
+     *
+     * @return the number of keys, including the ones still being processed
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private <T> T replay(Entry existing, String fingerprint, Class<T> type) {
+        if (!existing.fingerprint.equals(fingerprint)) {
+            throw new IllegalArgumentException("The " + HEADER + " was already used for a different request.");
+        }
+        try {
+            return type.cast(existing.response.get(waitTimeoutMillis, TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with the same " + HEADER + " is still being processed.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException("A request with the same " + HEADER + " is still being processed.");
+        }
+    }
+
+    // Caller holds the lock. Drops expired entries from the head, then the oldest completed
+    // ones beyond the limit. Entries still in flight are kept, or a retry would run again,
+    // so the map can briefly exceed the limit by the number of requests being processed
+    private void purge(long now) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (!entry.response.isDone()) {
+                continue;
+            }
+            if (entry.expiresAt > now) {
+                break;
+            }
+            iterator.remove();
+        }
+        iterator = entries.entrySet().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            if (iterator.next().getValue().response.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private <T> Optional<T> loadStored(String id, String fingerprint, Class<T> type) {
+        return recordRepository.findById(id)
+                .filter(record -> record.getCreatedAt().isAfter(LocalDateTime.now().minus(Duration.ofMillis(ttlMillis))))
+                .map(record -> {
+                    if (!record.getFingerprint().equals(fingerprint)) {
+                        throw new IllegalArgumentException("The " + HEADER + " was already used for a different request.");
+                    }
+                    try {
+                        return objectMapper.readValue(record.getResponse(), type);
+                    } catch (JsonProcessingException e) {
+                        throw new IllegalStateException("Could not read the stored response of " + id, e);
+                    }
+                });
+    }
+
+    // The action already succeeded, so a failure to store only loses protection after a restart
+    private void store(String id, String fingerprint, Object response) {
+        try {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setId(id);
+            record.setFingerprint(fingerprint);
+            record.setResponse(objectMapper.writeValueAsString(response));
+            record.setCreatedAt(LocalDateTime.now());
+            recordRepository.save(record);
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.warn("Could not store the response of idempotency key {}", id, e);
+        }
+    }
+}
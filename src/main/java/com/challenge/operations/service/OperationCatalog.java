@@ -0,0 +1,107 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.entity.Operation;
+import com.challenge.operations.entity.OperationType;
+import com.challenge.operations.repository.OperationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory catalog of operation costs.
+ *
+ * The {@code operation} table holds a handful of rows that rarely change, so the catalog
+ * loads it once at startup and serves every lookup from an immutable map. The map is
+ * replaced periodically and whenever {@link #refresh()} is called, e.g. from the admin
+ * endpoint. Returned {@link Operation} instances are shared and must be treated as
+ * read-only.
+ */
+@Service
+public class OperationCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperationCatalog.class);
+
+    /**
+     * Repository used to (re)load the catalog; never queried on the request path once
+     * the catalog has been loaded.
+     */
+    @Autowired
+    private OperationRepository operationRepository;
+
+    /**
+     * Current snapshot of the catalog, swapped atomically on refresh.
+     */
+    private volatile Map<OperationType, Operation> operations;
+
+    /**
+     * Returns the operation configured for the given type.
+     *
+     * @param type the operation type
+     * @return the operation, or an empty Optional if no row exists for the type
+     */
+    public Optional<Operation> find(OperationType type) {
+        return Optional.ofNullable(snapshot().get(type));
+    }
+
+    /**
+     * Returns every operation currently in the catalog.
+     *
+     * @return the operations, in {@link OperationType} order
+     */
+    public List<Operation> findAll() {
+        return List.copyOf(snapshot().values());
+    }
+
+    /**
+     * Reloads the catalog from the database and atomically replaces the current snapshot.
+     *
+     * @return the number of operations loaded
+     */
+    @Scheduled(fixedDelayString = "${operation.catalog.refresh-interval-ms:300000}",
+            initialDelayString = "${operation.catalog.refresh-interval-ms:300000}")
+    public synchronized int refresh() {
+        Map<OperationType, Operation> loaded = new EnumMap<>(OperationType.class);
+        for (Operation operation : operationRepository.findAll()) {
+            OperationType.fromType(operation.getType()).ifPresent(type -> loaded.put(type, operation));
+        }
+        operations = Collections.unmodifiableMap(loaded);
+        logger.info("Loaded {} operations into the catalog", loaded.size());
+        return loaded.size();
+    }
+
+    /**
+     * Loads the catalog as soon as the application is ready. A failure is logged and
+     * the catalog is loaded again on first use.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.warn("Could not load the operation catalog at startup", e);
+        }
+    }
+
+    private Map<OperationType, Operation> snapshot() {
+        Map<OperationType, Operation> current = operations;
+        if (current == null) {
+            synchronized (this) {
+                if (operations == null) {
+                    refresh();
+                }
+                current = operations;
+            }
+        }
+        return current;
+    }
+}
@@ -1,22 +1,35 @@
 package com.challenge.operations.service;
 
+import com.challenge.operations.dto.BatchItemResultDTO;
+import com.challenge.operations.dto.BatchResultDTO;
 import com.challenge.operations.dto.OperationDTO;
 import com.challenge.operations.entity.Operation;
+import com.challenge.operations.entity.OperationType;
 import com.challenge.operations.entity.User;
 import com.challenge.operations.exception.InsufficientBalanceException;
 import com.challenge.operations.exception.OperationNotFoundException;
 import com.challenge.operations.generator.RandomStringGenerator;
-import com.challenge.operations.repository.OperationRepository;
-import com.challenge.operations.util.ExpressionEvaluator;
+import com.challenge.operations.util.CompiledExpression;
+import com.challenge.operations.util.ExpressionCache;
+import com.challenge.operations.util.ExpressionEvaluator.InvalidExpressionException;
+import com.challenge.operations.util.NumericMode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Service for handling operations related to mathematical expressions and random string generation.
  *
- * This service leverages user and record services, and operation repository
+ * This service leverages user and record services, and the operation catalog
  * to execute and log operations while managing user balances.
  */
 @Service
@@ -28,16 +41,97 @@ public class OperationService {
     @Autowired
     private RecordService recordService;
 
+    /**
+     * Holds on user balances that operations can be charged to instead of the balance itself.
+     */
     @Autowired
-    private OperationRepository operationRepository;
+    private HoldService holdService;
+
+    /**
+     * In-memory catalog of operation costs, so pricing a request does not query the database.
+     */
+    @Autowired
+    private OperationCatalog operationCatalog;
 
     @Value("${randomsize}")
     private int stringLength;
 
+    /**
+     * Cache of compiled expressions, so repeated expressions are evaluated without
+     * being parsed again.
+     */
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    /**
+     * Arithmetic used when a request does not choose one.
+     */
+    @Value("${expression.numeric-mode:DOUBLE}")
+    private NumericMode numericMode = NumericMode.DOUBLE;
+
+    /**
+     * Default number of significant digits of {@link NumericMode#DECIMAL} results.
+     */
+    @Value("${expression.decimal.precision:34}")
+    private int decimalPrecision = 34;
+
+    /**
+     * Largest precision a request may ask for, bounding the cost of a single evaluation.
+     */
+    @Value("${expression.decimal.max-precision:100}")
+    private int maxDecimalPrecision = 100;
+
+    /**
+     * Rounding applied to {@link NumericMode#DECIMAL} results.
+     */
+    @Value("${expression.decimal.rounding:HALF_EVEN}")
+    private RoundingMode decimalRounding = RoundingMode.HALF_EVEN;
+
+    /**
+     * How expressions that use several operators are charged.
+     */
+    @Value("${operation.billing-mode:HIGHEST}")
+    private BillingMode billingMode = BillingMode.HIGHEST;
+
+    /**
+     * Largest number of expressions accepted in one batch.
+     */
+    @Value("${operation.batch.max-size:500}")
+    private int maxBatchSize = 500;
+
+    /**
+     * Result of an expression together with the operation recorded for it and its cost.
+     */
+    private record PricedExpression(BigDecimal result, Operation operation, BigDecimal cost) {
+    }
+
+    /**
+     * Outcome of one expression of a batch: either the priced expression or why it was rejected.
+     */
+    private record BatchOutcome(PricedExpression priced, String error) {
+    }
+
+    /**
+     * Strategies for computing the cost of an expression from the operators it uses.
+     */
+    public enum BillingMode {
+
+        /**
+         * Charge the cost of the most expensive operator used in the expression.
+         */
+        HIGHEST,
+
+        /**
+         * Charge the sum of the costs of every distinct operator used in the expression.
+         */
+        SUM
+    }
+
     /**
      * Executes the given operation described by the provided {@link OperationDTO}.
      * The method computes the result of the expression in the operation DTO,
      * deducts the cost of the operation from the user's balance, and records the operation.
+     * The debit and the record are written in a single transaction.
      *
      * @param operationDTO the DTO containing details about the operation to be executed,
      *                     including the user ID and the arithmetic expression to evaluate.
@@ -46,89 +140,226 @@ public class OperationService {
      * @throws InsufficientBalanceException if the user does not have sufficient balance to perform the operation.
      * @throws OperationNotFoundException if the operation type detected from the expression is not recognized.
      */
+    @Transactional
     public BigDecimal executeOperation(OperationDTO operationDTO) {
-        User user = userService.findById(operationDTO.getUserId());
+        PricedExpression priced = evaluateAndPrice(operationDTO);
+        BigDecimal resultado = priced.result();
 
-        // Evaluate the expression to get the result
-        ExpressionEvaluator evaluator = new ExpressionEvaluator();
-        Double result = evaluator.evaluate(operationDTO.getExpression());
-        BigDecimal resultado = BigDecimal.valueOf(result);
+        // Atomically deducts the cost of the operation from the user's balance
+        BigDecimal balanceNew = userService.debitBalance(operationDTO.getUserId(), priced.cost());
 
-        // Identify the most cost-intensive type of operation in the expression
-        String operationType = detectOperationType(operationDTO.getExpression());
+        // Saves the operation record
+        User user = userService.getReference(operationDTO.getUserId());
+        recordService.save(priced.operation(), user, resultado, balanceNew, "Result: " + resultado, priced.cost());
 
-        Operation operation = operationRepository.findByType(operationType)
-                .orElseThrow(() -> new OperationNotFoundException("Operation not found."));
+        return resultado;
+    }
 
-        BigDecimal currentBalance = user.getBalance();
-        BigDecimal costOperation = operation.getCost();
+    /**
+     * Executes a batch of expressions for one user.
+     *
+     * Every expression is evaluated and priced independently, one after the other on the
+     * request's thread, so a batch never competes with other requests for a shared pool.
+     * Expressions that fail are reported with their error and are not charged. The total
+     * cost of the others is debited with a single balance update, so either all of them are
+     * charged or, if the balance does not cover the total, none is. Their records are then
+     * inserted together in the same transaction.
+     *
+     * @param userId the ID of the user executing the batch
+     * @param operations the expressions to execute; their user IDs are ignored
+     * @return the outcome of every expression, the total cost and the resulting balance
+     * @throws IllegalArgumentException if the batch is empty or too large, or the user is not found
+     * @throws InsufficientBalanceException if the balance does not cover the total cost
+     */
+    @Transactional
+    public BatchResultDTO executeBatch(Long userId, List<OperationDTO> operations) {
+        return runBatch(userId, operations, totalCost -> userService.debitBalance(userId, totalCost));
+    }
 
-        if (currentBalance.compareTo(costOperation) < 0) {
-            throw new InsufficientBalanceException("Insufficient balance to carry out the operation.");
-        }
+    /**
+     * Executes an operation charged to a hold instead of the user's balance, so the balance
+     * is not updated. The record stores the balance the user will have once the hold is settled.
+     *
+     * @param holdId the ID of an open hold of the user
+     * @param operationDTO the expression to execute and the ID of the user
+     * @return the result of the evaluated expression
+     * @throws IllegalArgumentException if the hold does not exist, belongs to another user or is settled
+     * @throws InsufficientBalanceException if the rest of the hold does not cover the cost
+     * @throws OperationNotFoundException if the operation type detected from the expression is not recognized
+     */
+    @Transactional
+    public BigDecimal executeOnHold(String holdId, OperationDTO operationDTO) {
+        PricedExpression priced = evaluateAndPrice(operationDTO);
+        BigDecimal resultado = priced.result();
 
-        // Deducts the cost of the operation from the user's balance
-        BigDecimal balanceNew = currentBalance.subtract(costOperation);
-        user.setBalance(balanceNew);
-        userService.updateUser(user);
+        BigDecimal balanceNew = holdService.consume(holdId, operationDTO.getUserId(), priced.cost());
 
-        // Saves the operation record
-        recordService.save(operation, user, resultado, balanceNew, "Result: " + resultado);
+        User user = userService.getReference(operationDTO.getUserId());
+        recordService.save(priced.operation(), user, resultado, balanceNew, "Result: " + resultado, priced.cost());
 
         return resultado;
     }
 
     /**
-     * Detects the type of operation specified in a mathematical expression.
+     * Executes a batch of expressions charged to a hold, see {@link #executeBatch(Long, List)}.
+     * The total cost is taken from the hold in one step, so either every successful
+     * expression fits in the rest of the hold or none is charged.
+     *
+     * @param holdId the ID of an open hold of the user
+     * @param userId the ID of the user executing the batch
+     * @param operations the expressions to execute; their user IDs are ignored
+     * @return the outcome of every expression, the total cost and the balance once the hold is settled
+     * @throws IllegalArgumentException if the batch is empty or too large, or the hold is not usable
+     * @throws InsufficientBalanceException if the rest of the hold does not cover the total cost
+     */
+    @Transactional
+    public BatchResultDTO executeBatchOnHold(String holdId, Long userId, List<OperationDTO> operations) {
+        return runBatch(userId, operations, totalCost -> holdService.consume(holdId, userId, totalCost));
+    }
+
+    // Evaluates the batch, charges the total with the given function and inserts the records
+    private BatchResultDTO runBatch(Long userId, List<OperationDTO> operations, Function<BigDecimal, BigDecimal> charge) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("The batch must contain at least one expression.");
+        }
+        if (operations.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch can contain at most " + maxBatchSize + " expressions.");
+        }
+
+        List<BatchOutcome> outcomes = operations.stream().map(this::tryEvaluateAndPrice).toList();
+
+        BigDecimal totalCost = BigDecimal.ZERO;
+        int succeeded = 0;
+        for (BatchOutcome outcome : outcomes) {
+            if (outcome.priced() != null) {
+                totalCost = totalCost.add(outcome.priced().cost());
+                succeeded++;
+            }
+        }
+
+        BigDecimal balance = null;
+        if (succeeded > 0) {
+            balance = charge.apply(totalCost);
+
+            // Balance after each expression: the final balance plus what later expressions cost
+            List<RecordService.OperationOutcome> records = new ArrayList<>(succeeded);
+            BigDecimal balanceAfter = balance.add(totalCost);
+            for (BatchOutcome outcome : outcomes) {
+                PricedExpression priced = outcome.priced();
+                if (priced != null) {
+                    balanceAfter = balanceAfter.subtract(priced.cost());
+                    records.add(new RecordService.OperationOutcome(priced.operation(), priced.result(), balanceAfter,
+                            "Result: " + priced.result(), priced.cost()));
+                }
+            }
+            recordService.saveAll(userService.getReference(userId), records);
+        }
+
+        List<BatchItemResultDTO> results = new ArrayList<>(outcomes.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            PricedExpression priced = outcomes.get(i).priced();
+            results.add(priced != null
+                    ? new BatchItemResultDTO(i, priced.result(), priced.cost(), null)
+                    : new BatchItemResultDTO(i, null, null, outcomes.get(i).error()));
+        }
+        return new BatchResultDTO(results, succeeded, outcomes.size() - succeeded, totalCost, balance);
+    }
+
+    /**
+     * Evaluates an expression and prices it from the operators found while compiling it.
+     *
+     * @param operationDTO the expression and its evaluation options
+     * @return the result, the operation recorded for it and its cost
+     * @throws InvalidExpressionException if the expression is invalid or cannot be evaluated
+     * @throws IllegalArgumentException if the requested precision is out of range
+     * @throws OperationNotFoundException if the expression has no operator or an operation is not configured
+     */
+    private PricedExpression evaluateAndPrice(OperationDTO operationDTO) {
+        // Fetch the compiled program for the expression and run it
+        CompiledExpression compiled = expressionCache.get(operationDTO.getExpression());
+        NumericMode mode = operationDTO.getNumericMode() != null ? operationDTO.getNumericMode() : numericMode;
+        BigDecimal result = compiled.evaluate(mode, mathContext(operationDTO.getPrecision()));
+
+        // Price the expression from the operators found while compiling it
+        List<Operation> operations = findOperations(compiled.operatorMask());
+        Operation operation = operations.get(0);
+
+        BigDecimal cost = billingMode == BillingMode.SUM
+                ? operations.stream().map(Operation::getCost).reduce(BigDecimal.ZERO, BigDecimal::add)
+                : operation.getCost();
+        return new PricedExpression(result, operation, cost);
+    }
+
+    // Captures a rejected expression as an error instead of failing the whole batch
+    private BatchOutcome tryEvaluateAndPrice(OperationDTO operationDTO) {
+        try {
+            return new BatchOutcome(evaluateAndPrice(operationDTO), null);
+        } catch (InvalidExpressionException | OperationNotFoundException | IllegalArgumentException e) {
+            return new BatchOutcome(null, e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the context used by {@link NumericMode#DECIMAL} evaluations.
+     *
+     * @param precision the precision requested by the client, or null for the configured default
+     * @return the math context to evaluate with
+     * @throws IllegalArgumentException if the requested precision is out of range
+     */
+    private MathContext mathContext(Integer precision) {
+        if (precision == null) {
+            return new MathContext(decimalPrecision, decimalRounding);
+        }
+        if (precision < 1 || precision > maxDecimalPrecision) {
+            throw new IllegalArgumentException("Precision must be between 1 and " + maxDecimalPrecision + ".");
+        }
+        return new MathContext(precision, decimalRounding);
+    }
+
+    /**
+     * Loads the operations matching the operators used by an expression, most expensive first.
      *
-     * This method analyzes the input expression string to determine the type of mathematical
-     * operation it represents (e.g., addition, subtraction, multiplication, division, square root).
+     * Operations that cost the same are ordered as declared in {@link OperationType}, so the
+     * first element is the operation recorded for the expression.
      *
-     * @param expression the mathematical expression to be analyzed.
-     * @return a string representing the type of operation detected ("multiply", "divide", "add", "subtract", "sqrt").
-     * @throws OperationNotFoundException if the expression does not contain a valid operation.
-     */
-    private String detectOperationType(String expression) {
-        if (expression.contains("*")) {
-            return "multiply";
-        } else if (expression.contains("/")) {
-            return "divide";
-        } else if (expression.contains("+")) {
-            return "add";
-        } else if (expression.contains("-")) {
-            return "subtract";
-        } else if (expression.contains("sqrt")) {
-            return "sqrt";
-        } else {
+     * @param operatorMask the operators used by the expression, see {@link CompiledExpression#operatorMask()}
+     * @return the operations used by the expression; never empty
+     * @throws OperationNotFoundException if the expression has no operator or an operation is not configured
+     */
+    private List<Operation> findOperations(int operatorMask) {
+        Set<OperationType> types = OperationType.fromOperatorMask(operatorMask);
+        if (types.isEmpty()) {
             throw new OperationNotFoundException("Invalid operation in expression.");
         }
+
+        List<Operation> operations = new ArrayList<>(types.size());
+        for (OperationType type : types) {
+            operations.add(operationCatalog.find(type)
+                    .orElseThrow(() -> new OperationNotFoundException("Operation not found.")));
+        }
+
+        // Stable sort: operations with equal cost keep the OperationType order
+        operations.sort(Comparator.comparing(Operation::getCost).reversed());
+        return operations;
     }
 
     /**
      * Generates a random string for a given user and updates the user's balance after deducting the cost of the operation.
+     * The debit and the record are written in a single transaction.
      *
      * @param userId the ID of the user for whom the random string is to be generated
      * @return a randomly generated string
      * @throws IllegalArgumentException if the user or operation is not found
      * @throws InsufficientBalanceException if the user's balance is insufficient to carry out the operation
      */
+    @Transactional
     public String generateRandomString(Long userId) {
 
-        User user = userService.findById(userId);
-
-        Operation operation = operationRepository.findByType("random-string")
+        Operation operation = operationCatalog.find(OperationType.RANDOM_STRING)
                 .orElseThrow(() -> new IllegalArgumentException("Operation not found."));
 
-        BigDecimal currentBalance = user.getBalance();
-        BigDecimal costOperation = operation.getCost();
-
-        if (currentBalance.compareTo(costOperation) < 0) {
-            throw new InsufficientBalanceException("Insufficient balance to carry out the operation.");
-        }
-
-        BigDecimal balanceNew = currentBalance.subtract(costOperation);
-        user.setBalance(balanceNew);
-        userService.updateUser(user);
+        BigDecimal balanceNew = userService.debitBalance(userId, operation.getCost());
+        User user = userService.getReference(userId);
 
         String randomString = RandomStringGenerator.generateRandomString(stringLength);
 
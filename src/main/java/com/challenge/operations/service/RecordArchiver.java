@@ -0,0 +1,118 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.repository.RecordArchiveRepository;
+import com.challenge.operations.repository.RecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves records older than the retention period from {@code record} to
+ * {@code record_archive}, keeping the hot table and its indexes small.
+ *
+ * The archiver runs on a cron schedule, normally off-peak. It moves the oldest records
+ * in batches; each batch is copied with one INSERT ... SELECT and removed with one DELETE
+ * in its own short transaction, so locks on the hot table are held briefly. It also
+ * tracks the date of the newest archived record, which lets listings skip the archive
+ * for pages that are more recent.
+ */
+@Service
+public class RecordArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordArchiver.class);
+
+    @Autowired
+    private RecordRepository recordRepository;
+
+    @Autowired
+    private RecordArchiveRepository recordArchiveRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${records.archive.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Records older than this many days are archived.
+     */
+    @Value("${records.archive.retention-days:90}")
+    private int retentionDays = 90;
+
+    @Value("${records.archive.batch-size:1000}")
+    private int batchSize = 1000;
+
+    /**
+     * Date of the newest archived record; null until loaded, empty if the archive is empty.
+     */
+    private volatile Optional<LocalDateTime> newestArchivedDate;
+
+    /**
+     * Archives every record older than the retention period. Does nothing unless archiving
+     * is enabled.
+     *
+     * @return the number of records archived
+     */
+    @Scheduled(cron = "${records.archive.cron:0 0 3 * * *}")
+    public int archiveExpired() {
+        if (!enabled) {
+            return 0;
+        }
+        return archiveBefore(LocalDateTime.now().minusDays(retentionDays));
+    }
+
+    /**
+     * Archives every record dated before the cutoff, one batch per transaction.
+     *
+     * @param cutoff records dated before this instant are archived
+     * @return the number of records archived
+     */
+    public synchronized int archiveBefore(LocalDateTime cutoff) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int archived = 0;
+        while (true) {
+            List<Long> ids = recordRepository.findIdsDatedBefore(cutoff, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            Integer moved = transactionTemplate.execute(status -> {
+                recordArchiveRepository.copyFromRecords(ids);
+                return recordRepository.deleteAllByIdIn(ids);
+            });
+            archived += moved == null ? 0 : moved;
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            newestArchivedDate = recordArchiveRepository.findNewestDate();
+            logger.info("Archived {} records dated before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    /**
+     * Returns the date of the newest archived record. Archived records are never more
+     * recent than this, so a listing that stays after it does not need the archive.
+     *
+     * @return the newest archived date, or an empty Optional if nothing has been archived
+     */
+    public Optional<LocalDateTime> newestArchivedDate() {
+        Optional<LocalDateTime> newest = newestArchivedDate;
+        if (newest == null) {
+            newest = recordArchiveRepository.findNewestDate();
+            newestArchivedDate = newest;
+        }
+        return newest;
+    }
+}
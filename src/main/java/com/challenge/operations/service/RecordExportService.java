@@ -0,0 +1,162 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.dto.RecordView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Streams a user's complete record history to an output stream.
+ *
+ * Rows are read through a forward-only, read-only JDBC cursor and written out one at a
+ * time, so memory use does not depend on the number of records. With the MySQL driver a
+ * fetch size of {@link Integer#MIN_VALUE} makes the driver stream rows from the server
+ * instead of buffering the whole result; the connection stays busy until the export ends.
+ */
+@Service
+public class RecordExportService {
+
+    /**
+     * Archived records are older than the ones still in {@code record}, so the archive is
+     * exported first.
+     */
+    private static final List<String> EXPORT_QUERIES = Stream.of("record_archive", "record")
+            .map(table -> """
+                    select r.id, o.type, r.amount, r.user_balance, r.operation_response, r.date
+                    from %s r join operation o on o.id = r.operation_id
+                    where r.user_id = ? and r.deleted = false
+                    order by r.date, r.id""".formatted(table))
+            .toList();
+
+    private static final String CSV_HEADER = "id,operation_type,amount,user_balance,operation_response,date";
+
+    /**
+     * Output formats supported by the export.
+     */
+    public enum Format {
+        /** One JSON object per line. */
+        NDJSON("application/x-ndjson", "ndjson"),
+        /** Comma-separated values with a header row. */
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Rows fetched per round trip; {@code Integer.MIN_VALUE} streams row by row on MySQL.
+     */
+    @Value("${records.export.fetch-size:-2147483648}")
+    private int fetchSize = Integer.MIN_VALUE;
+
+    /**
+     * Writes every record of the user to the stream, archived records first, each table
+     * oldest first.
+     *
+     * @param userId the ID of the user whose records are exported
+     * @param format the output format
+     * @param out the stream to write to; it is flushed but not closed
+     * @throws UncheckedIOException if writing to the stream fails
+     */
+    public void export(Long userId, Format format, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            for (String query : EXPORT_QUERIES) {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(query,
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    statement.setLong(1, userId);
+                    return statement;
+                }, (ResultSet rs) -> writeRow(writer, format, rs));
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the record export", e);
+        }
+    }
+
+    private void writeRow(Writer writer, Format format, ResultSet rs) throws SQLException {
+        Timestamp date = rs.getTimestamp(6);
+        RecordView view = new RecordView(rs.getLong(1), rs.getString(2), rs.getBigDecimal(3),
+                rs.getBigDecimal(4), rs.getString(5), date == null ? null : date.toLocalDateTime());
+        try {
+            if (format == Format.CSV) {
+                writeCsv(writer, view);
+            } else {
+                writer.write(objectMapper.writeValueAsString(view));
+            }
+            writer.write('\n');
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize record " + view.id(), e);
+        } catch (IOException e) {
+            // Usually the client went away; stop reading rows
+            throw new UncheckedIOException("Could not write the record export", e);
+        }
+    }
+
+    private static void writeCsv(Writer writer, RecordView view) throws IOException {
+        writer.write(String.valueOf(view.id()));
+        writer.write(',');
+        writer.write(csvField(view.operationType()));
+        writer.write(',');
+        writer.write(csvField(view.amount() == null ? null : view.amount().toPlainString()));
+        writer.write(',');
+        writer.write(csvField(view.userBalance() == null ? null : view.userBalance().toPlainString()));
+        writer.write(',');
+        writer.write(csvField(view.operationResponse()));
+        writer.write(',');
+        writer.write(csvField(view.date() == null ? null : view.date().toString()));
+    }
+
+    // Quotes a field that contains a separator, quote or line break (RFC 4180)
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,14 +1,32 @@
 package com.challenge.operations.service;
 
+import com.challenge.operations.dto.RecordDeleteDTO;
+import com.challenge.operations.dto.RecordPageDTO;
+import com.challenge.operations.dto.RecordView;
 import com.challenge.operations.entity.Operation;
+import com.challenge.operations.entity.OperationType;
 import com.challenge.operations.entity.User;
+import com.challenge.operations.repository.RecordArchiveRepository;
 import com.challenge.operations.repository.RecordRepository;
+import com.challenge.operations.util.RecordCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.challenge.operations.entity.Record;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 /**
  * Service to handle operations related to records in the application.
@@ -16,6 +34,12 @@ import java.util.List;
 @Service
 public class RecordService {
 
+    /**
+     * Bounds of an open date range in record listings, within the DATETIME range of MySQL.
+     */
+    private static final LocalDateTime EARLIEST_DATE = LocalDateTime.of(1000, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     /**
      * The RecordRepository instance that provides CRUD operations and custom
      * queries for Record entities. This repository is essential for saving,
@@ -24,9 +48,75 @@ public class RecordService {
     @Autowired
     private RecordRepository recordRepository;
 
+    /**
+     * Background writer used instead of an inline insert when write-behind mode is enabled.
+     */
+    @Autowired
+    private RecordWriteBehind recordWriteBehind;
+
+    /**
+     * Records moved out of the hot table by {@link RecordArchiver}; listings and deletions
+     * cover both tables.
+     */
+    @Autowired
+    private RecordArchiveRepository recordArchiveRepository;
+
+    @Autowired
+    private RecordArchiver recordArchiver;
+
+    /**
+     * Per-user daily usage aggregates, incremented with every saved record.
+     */
+    @Autowired
+    private UsageService usageService;
+
+    /**
+     * Outcome of one operation of a batch, to be recorded by {@link #saveAll(User, List)}.
+     *
+     * @param operation the operation being recorded
+     * @param amount the amount involved in the operation
+     * @param userBalance the balance of the user after the operation
+     * @param response the response or result of the operation
+     * @param cost the amount debited from the user for the operation
+     */
+    public record OperationOutcome(Operation operation, BigDecimal amount, BigDecimal userBalance,
+                                   String response, BigDecimal cost) {
+    }
+
+    /**
+     * Resolves the operation type filter of a record listing to an operation ID.
+     */
+    @Autowired
+    private OperationCatalog operationCatalog;
+
+    /**
+     * Number of records in a page when the client does not ask for a size.
+     */
+    @Value("${records.page.default-size:20}")
+    private int defaultPageSize = 20;
+
+    /**
+     * Largest page a client can ask for.
+     */
+    @Value("${records.page.max-size:100}")
+    private int maxPageSize = 100;
+
+    /**
+     * Largest number of IDs a bulk delete accepts.
+     */
+    @Value("${records.delete.max-ids:1000}")
+    private int maxDeleteIds = 1000;
+
+    /**
+     * Number of IDs bound to each delete statement, keeping the IN list within driver limits.
+     */
+    @Value("${records.delete.batch-size:500}")
+    private int deleteBatchSize = 500;
+
     /**
      * Saves a new record in the repository with details about the operation, user,
      * amount involved, user's balance after the operation, and the operation's response.
+     * The user is assumed to have been charged the cost of the operation.
      *
      * @param operation the operation being recorded; must not be null.
      * @param user the user who performed the operation; must not be null.
@@ -34,42 +124,303 @@ public class RecordService {
      * @param userBalance the balance of the user after the operation; can be null.
      * @param response the response or result of the operation; can be null.
      * @throws IllegalArgumentException if the operation or user is null.
+     * @see #save(Operation, User, BigDecimal, BigDecimal, String, BigDecimal)
      */
     public void save(Operation operation, User user, BigDecimal amount, BigDecimal userBalance, String response) {
+        save(operation, user, amount, userBalance, response, operation == null ? null : operation.getCost());
+    }
+
+    /**
+     * Saves a new record in the repository with details about the operation, user,
+     * amount involved, user's balance after the operation, and the operation's response.
+     * In write-behind mode the record is handed to {@link RecordWriteBehind} and inserted
+     * asynchronously after the current transaction commits. The charged cost is added to
+     * the user's usage aggregates in the current transaction either way.
+     *
+     * @param operation the operation being recorded; must not be null.
+     * @param user the user who performed the operation; must not be null.
+     * @param amount the amount involved in the operation; can be null.
+     * @param userBalance the balance of the user after the operation; can be null.
+     * @param response the response or result of the operation; can be null.
+     * @param cost the amount debited from the user for the operation; can be null.
+     * @throws IllegalArgumentException if the operation or user is null.
+     */
+    public void save(Operation operation, User user, BigDecimal amount, BigDecimal userBalance, String response,
+                     BigDecimal cost) {
         if (operation == null || user == null) {
             throw new IllegalArgumentException("Operation or user cannot be null.");
         }
 
+        Record record = newRecord(operation, user, amount, userBalance, response, LocalDateTime.now());
+        usageService.recordUsage(user.getId(), operation.getType(), record.getDate().toLocalDate(), cost);
+
+        if (recordWriteBehind.isEnabled()) {
+            recordWriteBehind.submit(record);
+            return;
+        }
+        recordRepository.save(record);
+    }
+
+    /**
+     * Saves the records of a batch of operations performed by one user. The records are
+     * inserted together, so Hibernate sends them as JDBC batches, and the usage aggregates
+     * are updated once per operation type, in type order so that the rows are always locked
+     * in the same order.
+     *
+     * @param user the user who performed the operations; must not be null.
+     * @param outcomes the operations to record, in order; each operation must not be null.
+     * @throws IllegalArgumentException if the user or an operation is null.
+     */
+    public void saveAll(User user, List<OperationOutcome> outcomes) {
+        if (user == null || outcomes.stream().anyMatch(outcome -> outcome.operation() == null)) {
+            throw new IllegalArgumentException("Operation or user cannot be null.");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Record> records = new ArrayList<>(outcomes.size());
+        Map<String, List<OperationOutcome>> byType = new TreeMap<>();
+        for (OperationOutcome outcome : outcomes) {
+            records.add(newRecord(outcome.operation(), user, outcome.amount(), outcome.userBalance(), outcome.response(), now));
+            byType.computeIfAbsent(outcome.operation().getType(), type -> new ArrayList<>()).add(outcome);
+        }
+        byType.forEach((type, group) -> usageService.recordUsage(user.getId(), type, now.toLocalDate(), group.size(),
+                group.stream().map(OperationOutcome::cost).filter(cost -> cost != null).reduce(BigDecimal.ZERO, BigDecimal::add)));
+
+        if (recordWriteBehind.isEnabled()) {
+            records.forEach(recordWriteBehind::submit);
+            return;
+        }
+        recordRepository.saveAll(records);
+    }
+
+    private static Record newRecord(Operation operation, User user, BigDecimal amount, BigDecimal userBalance,
+                                    String response, LocalDateTime date) {
         Record record = new Record();
         record.setOperation(operation);
         record.setUser(user);
         record.setAmount(amount);
         record.setUserBalance(userBalance);
         record.setOperationResponse(response);
-
-        recordRepository.save(record);
+        record.setDate(date);
+        return record;
     }
 
     /**
-     * Retrieves a list of records associated with a specific user.
+     * Retrieves one page of a user's records, ordered by date and ID.
+     *
+     * Pages are addressed by the {@code (date, id)} of the last record of the previous page
+     * rather than by an offset, so fetching a page never scans the records before it.
+     * One extra row is fetched to tell whether another page follows. Archived records are
+     * merged in only when the page reaches back to the newest archived date.
      *
      * @param userId the ID of the user whose records are to be retrieved
-     * @return a list of records associated with the specified user
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     * @param size the number of records per page, or null for the default size
+     * @param type only records of this operation type (e.g. {@code "add"}), or null
+     * @param from only records dated at or after this instant, or null
+     * @param to only records dated before this instant, or null
+     * @param direction {@link Sort.Direction#DESC} for newest first, {@link Sort.Direction#ASC} for oldest first
+     * @return the page of record views and the cursor of the next page
+     * @throws IllegalArgumentException if the size, type, date range or cursor is invalid
      */
-    public List<Record> listRecordsByUser(Long userId) {
-        return recordRepository.findByUserId(userId);
+    public RecordPageDTO<RecordView> listRecordsPage(Long userId, String cursor, Integer size, String type,
+                                                     LocalDateTime from, LocalDateTime to, Sort.Direction direction) {
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize + ".");
+        }
+        validateDateRange(from, to);
+
+        Long operationId = null;
+        if (type != null) {
+            Optional<Operation> operation = findOperation(type);
+            if (operation.isEmpty()) {
+                return new RecordPageDTO<>(List.of(), null);
+            }
+            operationId = operation.get().getId();
+        }
+
+        RecordCursor position = cursor == null ? null : RecordCursor.decode(cursor);
+        boolean ascending = direction == Sort.Direction.ASC;
+        LocalDateTime start = from != null ? from : EARLIEST_DATE;
+        LocalDateTime end = to != null ? to : LATEST_DATE;
+        RecordCursor seek = seekPosition(position, ascending, start, end);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<RecordView> records = findPage(false, userId, operationId, ascending, start, end, seek, limit);
+        if (archiveMayContain(records, pageSize, ascending, position != null ? position.date() : from)) {
+            List<RecordView> archived = findPage(true, userId, operationId, ascending, start, end, seek, limit);
+            Comparator<RecordView> order = Comparator.comparing(RecordView::date).thenComparing(RecordView::id);
+            records = Stream.concat(records.stream(), archived.stream())
+                    .sorted(ascending ? order : order.reversed())
+                    .limit(pageSize + 1L)
+                    .toList();
+        }
+
+        if (records.size() <= pageSize) {
+            return new RecordPageDTO<>(records, null);
+        }
+        List<RecordView> page = records.subList(0, pageSize);
+        RecordView last = page.get(pageSize - 1);
+        return new RecordPageDTO<>(page, new RecordCursor(last.date(), last.id()).encode());
     }
 
-    public void deleteRecordById(Long recordId, Long userId) {
-        Record record = recordRepository.findById(recordId)
-                .orElseThrow(() -> new IllegalArgumentException("Record not found."));
+    /**
+     * Deletes one of the user's records with a single statement; the owner is part of the
+     * statement, so the record is never loaded. The owner is only looked up when nothing
+     * was deleted, to report why.
+     *
+     * @param recordId the ID of the record to delete
+     * @param userId the ID of the user deleting the record
+     * @param soft true to hide the record instead of removing it
+     * @throws IllegalArgumentException if the record does not exist or is already deleted
+     * @throws SecurityException if the record belongs to another user
+     */
+    @Transactional
+    public void deleteRecordById(Long recordId, Long userId, boolean soft) {
+        List<Long> ids = List.of(recordId);
+        if (deleteOwned(userId, ids, soft) > 0) {
+            return;
+        }
 
-        if (!record.getUser().getId().equals(userId)) {
+        Long ownerId = recordRepository.findOwnerIdById(recordId)
+                .or(() -> recordArchiveRepository.findOwnerIdById(recordId))
+                .orElseThrow(() -> new IllegalArgumentException("Record not found."));
+        if (!ownerId.equals(userId)) {
             throw new SecurityException("You are not authorized to delete this record.");
         }
+    }
 
-        recordRepository.deleteById(recordId);
+    /**
+     * Deletes many of the user's records, selected either by ID or by operation type and
+     * date range. Records of other users and records already soft-deleted are never
+     * matched, so a soft delete cannot be undone or purged here. IDs are deleted in batches of
+     * set-based statements; a filter is applied with one statement per table. Everything
+     * runs in one transaction.
+     *
+     * @param userId the ID of the user deleting the records
+     * @param request the IDs or filters, and whether to soft delete
+     * @return the number of records deleted or hidden
+     * @throws IllegalArgumentException if neither IDs nor a filter are given, or they are invalid
+     */
+    @Transactional
+    public int deleteRecords(Long userId, RecordDeleteDTO request) {
+        List<Long> ids = request.getIds();
+        if (ids != null && !ids.isEmpty()) {
+            if (ids.size() > maxDeleteIds) {
+                throw new IllegalArgumentException("At most " + maxDeleteIds + " records can be deleted at once.");
+            }
+            List<Long> distinctIds = ids.stream().distinct().toList();
+            int deleted = 0;
+            for (int start = 0; start < distinctIds.size(); start += deleteBatchSize) {
+                List<Long> batch = distinctIds.subList(start, Math.min(start + deleteBatchSize, distinctIds.size()));
+                deleted += deleteOwned(userId, batch, request.isSoft());
+            }
+            return deleted;
+        }
+
+        if (request.getType() == null && request.getFrom() == null && request.getTo() == null) {
+            throw new IllegalArgumentException("Provide record IDs or at least one filter.");
+        }
+        LocalDateTime from = request.getFrom();
+        LocalDateTime to = request.getTo();
+        validateDateRange(from, to);
+        Long operationId = null;
+        if (request.getType() != null) {
+            Optional<Operation> operation = findOperation(request.getType());
+            if (operation.isEmpty()) {
+                return 0;
+            }
+            operationId = operation.get().getId();
+        }
+        if (request.isSoft()) {
+            return recordRepository.softDeleteOwnedMatching(userId, operationId, from, to)
+                    + recordArchiveRepository.softDeleteOwnedMatching(userId, operationId, from, to);
+        }
+        return recordRepository.deleteOwnedMatching(userId, operationId, from, to)
+                + recordArchiveRepository.deleteOwnedMatching(userId, operationId, from, to);
     }
 
-}
+    // Deletes the user's records among the IDs from the hot table, then from the archive
+    private int deleteOwned(Long userId, List<Long> ids, boolean soft) {
+        int deleted = soft
+                ? recordRepository.softDeleteOwned(userId, ids)
+                : recordRepository.deleteOwned(userId, ids);
+        if (deleted == ids.size()) {
+            return deleted;
+        }
+        return deleted + (soft
+                ? recordArchiveRepository.softDeleteOwned(userId, ids)
+                : recordArchiveRepository.deleteOwned(userId, ids));
+    }
+
+    /*
+     * Tells whether archived records can belong on the page. Archived records are never
+     * newer than the newest archived date: newest first, they can only follow hot records
+     * that reach back to that date; oldest first, they come before every hot record unless
+     * the page starts after it.
+     */
+    private boolean archiveMayContain(List<RecordView> hotRecords, int pageSize, boolean ascending, LocalDateTime start) {
+        Optional<LocalDateTime> newestArchived = recordArchiver.newestArchivedDate();
+        if (newestArchived.isEmpty()) {
+            return false;
+        }
+        if (ascending) {
+            return start == null || !start.isAfter(newestArchived.get());
+        }
+        if (hotRecords.size() <= pageSize) {
+            return true;
+        }
+        LocalDateTime oldestHot = hotRecords.get(hotRecords.size() - 1).date();
+        return !oldestHot.isAfter(newestArchived.get());
+    }
+
+    // Where the page starts: the first page starts at the edge of the date range, and a
+    // cursor outside the range is clamped to it. Long.MIN_VALUE sorts before every ID, so
+    // (date, MIN_VALUE) marks the instant itself
+    private static RecordCursor seekPosition(RecordCursor position, boolean ascending,
+                                             LocalDateTime start, LocalDateTime end) {
+        if (ascending) {
+            RecordCursor first = new RecordCursor(start, Long.MIN_VALUE);
+            return position == null || position.date().isBefore(start) ? first : position;
+        }
+        RecordCursor first = new RecordCursor(end, Long.MIN_VALUE);
+        return position == null || !position.date().isBefore(end) ? first : position;
+    }
+
+    // Picks the keyset query matching the filters, so each has a plain index range
+    private List<RecordView> findPage(boolean archive, Long userId, Long operationId, boolean ascending,
+                                      LocalDateTime start, LocalDateTime end, RecordCursor seek, Pageable limit) {
+        if (archive) {
+            if (ascending) {
+                return operationId == null
+                        ? recordArchiveRepository.findPageAscending(userId, end, seek.date(), seek.id(), limit)
+                        : recordArchiveRepository.findPageAscendingByOperation(userId, operationId, end, seek.date(), seek.id(), limit);
+            }
+            return operationId == null
+                    ? recordArchiveRepository.findPageDescending(userId, start, seek.date(), seek.id(), limit)
+                    : recordArchiveRepository.findPageDescendingByOperation(userId, operationId, start, seek.date(), seek.id(), limit);
+        }
+        if (ascending) {
+            return operationId == null
+                    ? recordRepository.findPageAscending(userId, end, seek.date(), seek.id(), limit)
+                    : recordRepository.findPageAscendingByOperation(userId, operationId, end, seek.date(), seek.id(), limit);
+        }
+        return operationId == null
+                ? recordRepository.findPageDescending(userId, start, seek.date(), seek.id(), limit)
+                : recordRepository.findPageDescendingByOperation(userId, operationId, start, seek.date(), seek.id(), limit);
+    }
+
+    // Resolves an operation type filter; empty if the type is valid but has no operation row
+    private Optional<Operation> findOperation(String type) {
+        OperationType operationType = OperationType.fromType(type)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid operation type."));
+        return operationCatalog.find(operationType);
+    }
 
+    private static void validateDateRange(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("The start of the date range must be before its end.");
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.dto.RecordWriterStatsDTO;
+import com.challenge.operations.entity.Record;
+import com.challenge.operations.repository.OperationRepository;
+import com.challenge.operations.repository.RecordRepository;
+import com.challenge.operations.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Optional write-behind writer for operation records.
+ *
+ * When enabled, records are appended to a local spill segment before the surrounding
+ * transaction commits, and placed in a bounded in-memory queue once it has; a record whose
+ * transaction rolls back is cancelled by an abort line in the spill. A background thread
+ * inserts the queued records in JDBC batches, either when a full batch is waiting or after
+ * the flush interval. Each flush closes the current segment and deletes it once the batch
+ * is committed and no record written to it is still waiting for its transaction, so
+ * segments left over after a crash are replayed at startup.
+ *
+ * Records are written at least once: a crash between the spill append and the commit of
+ * the surrounding transaction replays a record whose operation did not commit, while a
+ * crash after the commit never loses one. Spill appends are forced to disk unless
+ * {@code records.write-behind.fsync} is turned off, which trades that guarantee for
+ * throughput on a power loss.
+ *
+ * Callers are throttled when the queue is full: they wait up to the offer timeout for
+ * space and otherwise insert their record synchronously.
+ */
+@Service
+public class RecordWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordWriteBehind.class);
+
+    private static final String SEGMENT_PREFIX = "records-";
+    private static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final String ABORT_PREFIX = "{\"aborted\":";
+
+    @Autowired
+    private RecordRepository recordRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OperationRepository operationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${records.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${records.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${records.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${records.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${records.write-behind.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    @Value("${records.write-behind.spill-dir:${java.io.tmpdir}/operations-records}")
+    private String spillDir;
+
+    @Value("${records.write-behind.fsync:true}")
+    private boolean fsync = true;
+
+    /**
+     * Free queue slots; acquired when a record is submitted and released once it is flushed.
+     */
+    private Semaphore permits;
+
+    /**
+     * Records waiting to be flushed; guarded by {@code lock} together with the open segment.
+     */
+    private final ArrayDeque<PendingRecord> queue = new ArrayDeque<>();
+    private final Object lock = new Object();
+    private Segment segment;
+    private long segmentSequence;
+
+    private TransactionTemplate transactionTemplate;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong flushedRecords = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong synchronousWrites = new AtomicLong();
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    /**
+     * A record reduced to the column values stored in the spill segments, with an ID that
+     * abort lines refer to.
+     */
+    record PendingRecord(String id, Long userId, Long operationId, BigDecimal amount, BigDecimal userBalance,
+                         String operationResponse, LocalDateTime date) {
+    }
+
+    /**
+     * Spill line cancelling a record whose transaction rolled back.
+     */
+    record AbortedRecord(String aborted) {
+    }
+
+    /**
+     * A spill file; fields other than the file handles are guarded by {@code lock}.
+     */
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final Writer writer;
+        /**
+         * Records appended to this segment whose transaction has not ended yet.
+         */
+        int inFlight;
+        boolean closed;
+        boolean flushed;
+
+        Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+            this.writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Replays segments left over by a previous run and starts the flusher thread.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        permits = new Semaphore(capacity);
+        try {
+            Files.createDirectories(Paths.get(spillDir));
+            recoverSegments();
+            synchronized (lock) {
+                openSegment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not prepare the record spill directory " + spillDir, e);
+        }
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "record-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stops the flusher thread after it has written every queued record.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Indicates whether records are written behind instead of inline.
+     *
+     * @return true if write-behind mode is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Submits a record for asynchronous insertion.
+     *
+     * Inside a transaction the record is appended to the spill just before the transaction
+     * commits and queued only once it has, so a rolled back operation leaves no record
+     * behind and a committed one survives a crash. If the queue stays full for longer than
+     * the offer timeout, or the record cannot be spilled, it is inserted synchronously
+     * instead.
+     *
+     * @param record the record to write; its user and operation must have IDs
+     */
+    public void submit(Record record) {
+        PendingRecord pending = new PendingRecord(UUID.randomUUID().toString(), record.getUser().getId(),
+                record.getOperation().getId(), record.getAmount(), record.getUserBalance(),
+                record.getOperationResponse(), record.getDate());
+
+        if (!acquirePermit()) {
+            synchronousWrites.incrementAndGet();
+            recordRepository.save(record);
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private Segment spilled;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    synchronized (lock) {
+                        spilled = append(serialize(pending));
+                        if (spilled != null) {
+                            spilled.inFlight++;
+                        }
+                    }
+                    if (spilled == null) {
+                        // Not durable outside the database; write it with the operation instead
+                        synchronousWrites.incrementAndGet();
+                        recordRepository.save(record);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (spilled == null) {
+                        permits.release();
+                        return;
+                    }
+                    if (status == STATUS_COMMITTED) {
+                        enqueue(pending, spilled);
+                    } else {
+                        abort(pending, spilled);
+                    }
+                }
+            });
+        } else {
+            synchronized (lock) {
+                Segment spilled = append(serialize(pending));
+                if (spilled == null) {
+                    logger.error("Record {} could not be spilled and is kept in memory only", pending.id());
+                }
+                queue.add(pending);
+                signalIfBatchReady();
+            }
+        }
+    }
+
+    /**
+     * Returns the queue depth and flush counters of the writer.
+     *
+     * @return a snapshot of the writer statistics
+     */
+    public RecordWriterStatsDTO stats() {
+        int depth;
+        synchronized (lock) {
+            depth = queue.size();
+        }
+        long count = flushes.get();
+        return new RecordWriterStatsDTO(enabled, depth, capacity, flushedRecords.get(), count,
+                failedFlushes.get(), synchronousWrites.get(), lastFlushMillis,
+                count == 0 ? 0 : totalFlushMillis.get() / count, maxFlushMillis.get());
+    }
+
+    private boolean acquirePermit() {
+        try {
+            return permits.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Queues a committed record; if its segment has been rotated away since, the record is
+    // spilled again so that it outlives the deletion of that segment
+    private void enqueue(PendingRecord pending, Segment spilled) {
+        synchronized (lock) {
+            if (spilled.closed && append(serialize(pending)) == null) {
+                logger.error("Record {} could not be spilled again and is kept in memory only", pending.id());
+            }
+            queue.add(pending);
+            signalIfBatchReady();
+            release(spilled);
+        }
+    }
+
+    // Cancels a spilled record whose transaction rolled back
+    private void abort(PendingRecord pending, Segment spilled) {
+        synchronized (lock) {
+            if (append(serialize(new AbortedRecord(pending.id()))) == null) {
+                logger.error("Rolled back record {} could not be cancelled and may be replayed", pending.id());
+            }
+            release(spilled);
+        }
+        permits.release();
+    }
+
+    private String serialize(Object line) {
+        try {
+            return objectMapper.writeValueAsString(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize record", e);
+        }
+    }
+
+    // Appends a line to the open segment; returns the segment, or null if it could not be
+    // written. Caller holds the lock
+    private Segment append(String line) {
+        if (segment == null) {
+            logger.error("No spill segment open in {}", spillDir);
+            return null;
+        }
+        try {
+            segment.writer.write(line);
+            segment.writer.write('\n');
+            segment.writer.flush();
+            if (fsync) {
+                segment.channel.force(false);
+            }
+            return segment;
+        } catch (IOException e) {
+            logger.error("Could not append to spill segment {}", segment.path, e);
+            return null;
+        }
+    }
+
+    // Caller holds the lock
+    private void signalIfBatchReady() {
+        if (queue.size() >= batchSize) {
+            lock.notifyAll();
+        }
+    }
+
+    // Drops a finished transaction's claim on a segment. Caller holds the lock
+    private void release(Segment spilled) {
+        spilled.inFlight--;
+        deleteIfDone(spilled);
+    }
+
+    // Deletes a closed segment once its records are flushed and none is waiting for its
+    // transaction. Caller holds the lock
+    private void deleteIfDone(Segment done) {
+        if (!done.closed || !done.flushed || done.inFlight > 0) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(done.path);
+        } catch (IOException e) {
+            logger.warn("Could not delete flushed spill segment {}", done.path, e);
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            List<PendingRecord> batch;
+            Segment closedSegment;
+            synchronized (lock) {
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                long remaining;
+                while (running && queue.size() < batchSize
+                        && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    try {
+                        lock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        running = false;
+                    }
+                }
+                if (queue.isEmpty()) {
+                    if (!running) {
+                        closeSegment();
+                        return;
+                    }
+                    continue;
+                }
+                batch = new ArrayList<>(queue);
+                queue.clear();
+                closedSegment = segment;
+                closeSegment();
+                openSegmentQuietly();
+            }
+            flushWithRetry(batch, closedSegment);
+        }
+    }
+
+    // Retries a failed batch until it is written; permits stay held so producers slow down
+    private void flushWithRetry(List<PendingRecord> batch, Segment flushed) {
+        while (true) {
+            long started = System.currentTimeMillis();
+            try {
+                persist(batch);
+                long elapsed = System.currentTimeMillis() - started;
+                lastFlushMillis = elapsed;
+                totalFlushMillis.addAndGet(elapsed);
+                maxFlushMillis.accumulateAndGet(elapsed, Math::max);
+                flushes.incrementAndGet();
+                flushedRecords.addAndGet(batch.size());
+                permits.release(batch.size());
+                if (flushed != null) {
+                    synchronized (lock) {
+                        flushed.flushed = true;
+                        deleteIfDone(flushed);
+                    }
+                }
+                return;
+            } catch (RuntimeException e) {
+                failedFlushes.incrementAndGet();
+                logger.error("Could not flush {} records, retrying", batch.size(), e);
+                try {
+                    Thread.sleep(Math.max(flushIntervalMs, 1000));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    logger.error("Flusher interrupted; {} records remain in {}", batch.size(),
+                            flushed != null ? flushed.path : spillDir);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void persist(List<PendingRecord> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Record> records = new ArrayList<>(batch.size());
+            for (PendingRecord pending : batch) {
+                Record record = new Record();
+                record.setUser(userRepository.getReferenceById(pending.userId()));
+                record.setOperation(operationRepository.getReferenceById(pending.operationId()));
+                record.setAmount(pending.amount());
+                record.setUserBalance(pending.userBalance());
+                record.setOperationResponse(pending.operationResponse());
+                record.setDate(pending.date());
+                records.add(record);
+            }
+            recordRepository.saveAll(records);
+        });
+    }
+
+    // Writes the records of segments left by a previous run, oldest first, skipping the ones
+    // cancelled by an abort line and the ones spilled twice
+    private void recoverSegments() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(Paths.get(spillDir))) {
+            segments = files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        Map<Path, List<PendingRecord>> spilled = new LinkedHashMap<>();
+        Set<String> aborted = new HashSet<>();
+        for (Path segment : segments) {
+            List<PendingRecord> records = new ArrayList<>();
+            for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    // Read as a record directly, a tree would parse the amounts as doubles
+                    if (line.startsWith(ABORT_PREFIX)) {
+                        aborted.add(objectMapper.readValue(line, AbortedRecord.class).aborted());
+                    } else {
+                        records.add(objectMapper.readValue(line, PendingRecord.class));
+                    }
+                } catch (JsonProcessingException e) {
+                    // A crash can leave the last line half written
+                    logger.warn("Skipping unreadable line in spill segment {}", segment);
+                }
+            }
+            spilled.put(segment, records);
+        }
+
+        Set<String> replayed = new HashSet<>();
+        for (Map.Entry<Path, List<PendingRecord>> entry : spilled.entrySet()) {
+            List<PendingRecord> batch = entry.getValue().stream()
+                    .filter(pending -> !aborted.contains(pending.id()) && replayed.add(pending.id()))
+                    .toList();
+            if (!batch.isEmpty()) {
+                persist(batch);
+                logger.info("Recovered {} records from spill segment {}", batch.size(), entry.getKey());
+            }
+        }
+        for (Path segment : segments) {
+            Files.delete(segment);
+        }
+    }
+
+    // Caller holds the lock
+    private void openSegment() throws IOException {
+        Path path = Paths.get(spillDir, String.format("%s%d-%06d%s",
+                SEGMENT_PREFIX, System.currentTimeMillis(), segmentSequence++, SEGMENT_SUFFIX));
+        segment = new Segment(path, FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    }
+
+    // Caller holds the lock
+    private void openSegmentQuietly() {
+        try {
+            openSegment();
+        } catch (IOException e) {
+            logger.error("Could not open a new spill segment in {}", spillDir, e);
+        }
+    }
+
+    // Caller holds the lock
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.writer.close();
+        } catch (IOException e) {
+            logger.warn("Could not close spill segment {}", segment.path, e);
+        }
+        segment.closed = true;
+        segment = null;
+    }
+}
@@ -0,0 +1,103 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.dto.DailyUsageDTO;
+import com.challenge.operations.dto.UsageStatsDTO;
+import com.challenge.operations.entity.UsageDaily;
+import com.challenge.operations.repository.UsageDailyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service maintaining and reading the per-user daily usage aggregates.
+ *
+ * Each saved record adds to the aggregate row of its user, day and operation type, so
+ * statistics cost one row per day and type of the reporting period, however many
+ * records the user has.
+ *
+ * The upsert runs in the transaction that charges the operation and takes an exclusive
+ * lock on the aggregate row until that transaction ends, so operations of one user, day
+ * and type are serialized on it. With the default balance mode and the journal the user's
+ * debits already serialize on the user's balance, which is locked first, so the aggregate
+ * adds no wait of its own; with the in-memory ledger, and for charges to a hold, it is the
+ * only per-user lock a charge takes. Rows of different users or types never block each other, and a batch locks its
+ * rows in type order so two batches of one user cannot deadlock.
+ */
+@Service
+public class UsageService {
+
+    @Autowired
+    private UsageDailyRepository usageDailyRepository;
+
+    /**
+     * Longest reporting period that can be requested, in days.
+     */
+    @Value("${usage.stats.max-days:366}")
+    private int maxDays = 366;
+
+    /**
+     * Adds one operation to the user's aggregates; joins the caller's transaction, so the
+     * aggregates stay consistent with the charged balance, and locks the aggregate row
+     * until that transaction ends.
+     *
+     * @param userId the user charged for the operation
+     * @param operationType the type of the operation
+     * @param day the day of the operation
+     * @param amount the amount charged; null counts as zero
+     */
+    public void recordUsage(Long userId, String operationType, LocalDate day, BigDecimal amount) {
+        recordUsage(userId, operationType, day, 1, amount);
+    }
+
+    /**
+     * Adds several operations of the same type and day to the user's aggregates with one
+     * statement.
+     *
+     * @param userId the user charged for the operations
+     * @param operationType the type of the operations
+     * @param day the day of the operations
+     * @param count the number of operations
+     * @param amount the total amount charged for them; null counts as zero
+     */
+    public void recordUsage(Long userId, String operationType, LocalDate day, long count, BigDecimal amount) {
+        usageDailyRepository.increment(userId, day, operationType, count, amount == null ? BigDecimal.ZERO : amount);
+    }
+
+    /**
+     * Returns the user's usage over the last days, ending today, plus the all-time total.
+     *
+     * @param userId the user
+     * @param days the length of the reporting period
+     * @return the usage statistics
+     * @throws IllegalArgumentException if the period is not between 1 and the configured maximum
+     */
+    public UsageStatsDTO getStats(Long userId, int days) {
+        if (days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("Days must be between 1 and " + maxDays + ".");
+        }
+        LocalDate since = LocalDate.now().minusDays(days - 1L);
+
+        Map<LocalDate, DailyUsageDTO> daily = new TreeMap<>();
+        Map<String, Long> byType = new TreeMap<>();
+        long periodOperations = 0;
+        BigDecimal periodSpent = BigDecimal.ZERO;
+        for (UsageDaily row : usageDailyRepository.findByUserSince(userId, since)) {
+            LocalDate day = row.getId().getUsageDate();
+            daily.merge(day, new DailyUsageDTO(day, row.getOperationCount(), row.getTotalAmount()),
+                    (a, b) -> new DailyUsageDTO(day, a.operationCount() + b.operationCount(), a.totalAmount().add(b.totalAmount())));
+            byType.merge(row.getId().getOperationType(), row.getOperationCount(), Long::sum);
+            periodOperations += row.getOperationCount();
+            periodSpent = periodSpent.add(row.getTotalAmount());
+        }
+
+        BigDecimal totalSpent = usageDailyRepository.sumTotalAmount(userId);
+        return new UsageStatsDTO(totalSpent == null ? BigDecimal.ZERO : totalSpent, days,
+                periodOperations, periodSpent, byType, new ArrayList<>(daily.values()));
+    }
+}
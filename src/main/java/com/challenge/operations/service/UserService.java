@@ -1,12 +1,19 @@
 package com.challenge.operations.service;
 
 import com.challenge.operations.entity.User;
+import com.challenge.operations.exception.InsufficientBalanceException;
 import com.challenge.operations.exception.UserNotFoundException;
+import com.challenge.operations.jwt.AuthenticatedUser;
+import com.challenge.operations.jwt.PrincipalCache;
 import com.challenge.operations.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 
@@ -20,6 +27,25 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    /**
+     * Cache of authenticated principals; a user's entry is evicted whenever the user is saved.
+     * Balance updates are not evicted for, since principals carry no balance.
+     */
+    @Autowired
+    private PrincipalCache principalCache;
+
+    /**
+     * Optional in-memory balance engine; when enabled it owns debits, credits and balance reads.
+     */
+    @Autowired
+    private BalanceLedger balanceLedger;
+
+    /**
+     * Optional append-only balance mode; used when enabled and the in-memory ledger is not.
+     */
+    @Autowired
+    private BalanceJournal balanceJournal;
+
     /**
      * Finds a user by their unique ID.
      *
@@ -33,36 +59,115 @@ public class UserService {
     }
 
     /**
-     * Updates the given user in the repository.
+     * Returns a reference to the user with the given ID without loading it, for use as the
+     * target of an association such as {@code Record.user}.
+     *
+     * @param userId the unique ID of the user
+     * @return a lazily loaded reference to the user
+     */
+    public User getReference(Long userId) {
+        return userRepository.getReferenceById(userId);
+    }
+
+    /**
+     * Atomically debits the given amount from the user's balance.
+     *
+     * The balance check and the subtraction happen in a single conditional UPDATE, so
+     * concurrent debits for the same user can neither overdraw the balance nor overwrite
+     * each other. When the {@link BalanceLedger} is enabled, the debit is applied in memory
+     * and written to the database later by its flusher.
+     *
+     * @param userId the ID of the user to debit
+     * @param amount the amount to subtract from the balance
+     * @return the user's balance after the debit
+     * @throws IllegalArgumentException if no user is found with the provided ID
+     * @throws InsufficientBalanceException if the balance does not cover the amount
+     */
+    @Transactional
+    public BigDecimal debitBalance(Long userId, BigDecimal amount) {
+        if (balanceLedger.isEnabled()) {
+            return balanceLedger.debit(userId, amount);
+        }
+        if (balanceJournal.isEnabled()) {
+            return balanceJournal.debit(userId, amount);
+        }
+        if (userRepository.debitBalance(userId, amount) == 0) {
+            if (!userRepository.existsById(userId)) {
+                throw new IllegalArgumentException("User not found.");
+            }
+            throw new InsufficientBalanceException("Insufficient balance to carry out the operation.");
+        }
+
+        return userRepository.findBalanceById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found."));
+    }
+
+    /**
+     * Atomically credits the given amount to the user's balance, e.g. to give back the
+     * unused part of a hold.
+     *
+     * @param userId the ID of the user to credit
+     * @param amount the amount to add to the balance
+     * @throws IllegalArgumentException if no user is found with the provided ID
+     */
+    @Transactional
+    public void creditBalance(Long userId, BigDecimal amount) {
+        if (balanceLedger.isEnabled()) {
+            balanceLedger.credit(userId, amount);
+            return;
+        }
+        if (balanceJournal.isEnabled()) {
+            if (!userRepository.existsById(userId)) {
+                throw new IllegalArgumentException("User not found.");
+            }
+            balanceJournal.credit(userId, amount);
+            return;
+        }
+        if (userRepository.creditBalance(userId, amount) == 0) {
+            throw new IllegalArgumentException("User not found.");
+        }
+    }
+
+    /**
+     * Updates the given user in the repository and evicts its cached principal. Inside a
+     * transaction the principal is evicted again once it commits, since a request may load
+     * the row between the save and the commit and still see the old values.
      *
      * @param user the user entity to be updated
      */
     public void updateUser(User user) {
         userRepository.save(user);
+        String username = user.getUsername();
+        if (username == null) {
+            return;
+        }
+        principalCache.evict(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    principalCache.evict(username);
+                }
+            });
+        }
     }
 
     /**
      * Adds a specified amount to the balance of the user with the given userId.
+     * The amount is added with {@link #creditBalance(Long, BigDecimal)}, so the user entity
+     * is neither loaded nor saved and concurrent recharges cannot overwrite each other.
      *
      * @param userId the ID of the user to update the balance for.
      * @param amount the amount to be added to the user's balance.
      * @throws IllegalArgumentException if the amount is less than or equal to zero,
      *                                  or if the user is not found.
-     * @throws UserNotFoundException if the user with the given userId does not exist.
      */
     public void addBalance(Long userId, BigDecimal amount) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("The recharge value must be positive.");
         }
 
-        User user = findById(userId);
-        if (user == null) {
-            throw new UserNotFoundException("User with ID " + userId + " not found.");
-        }
-
-        BigDecimal newBalance = user.getBalance().add(amount);
-        user.setBalance(newBalance);
-        updateUser(user);
+        creditBalance(userId, amount);
     }
 
     /**
@@ -87,6 +192,12 @@ public class UserService {
      * @throws UserNotFoundException if the user with the specified ID is not found
      */
     public BigDecimal getBalance(Long userId) {
+        if (balanceLedger.isEnabled()) {
+            return balanceLedger.balance(userId);
+        }
+        if (balanceJournal.isEnabled()) {
+            return balanceJournal.balance(userId);
+        }
         User user = findById(userId);
         if (user == null) {
             throw new UserNotFoundException("User with ID " + userId + " not found.");
@@ -100,4 +211,42 @@ public class UserService {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
+
+    /**
+     * Returns the ID of the user authenticated for the current request. The ID is carried by
+     * the {@link AuthenticatedUser} principal, so no query is needed; other principals fall
+     * back to a lookup by username.
+     *
+     * @return the ID of the authenticated user, or null if the request is not authenticated
+     * @throws UsernameNotFoundException if the authenticated user no longer exists
+     */
+    public Long getAuthenticatedUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return null;
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        return getAuthenticatedUser().getId();
+    }
+
+    /**
+     * Resolves the user a request acts on. Requests may omit the user ID, in which case the
+     * authenticated user is used; an explicit ID must be the authenticated user's.
+     *
+     * @param requestedUserId the user ID sent by the client, or null
+     * @return the ID of the user the request acts on
+     * @throws IllegalArgumentException if the request is not authenticated or the ID belongs to another user
+     */
+    public Long resolveUserId(Long requestedUserId) {
+        Long authenticatedUserId = getAuthenticatedUserId();
+        if (authenticatedUserId == null) {
+            throw new IllegalArgumentException("User not authenticated.");
+        }
+        if (requestedUserId != null && !requestedUserId.equals(authenticatedUserId)) {
+            throw new IllegalArgumentException("The user ID does not match the authenticated user.");
+        }
+        return authenticatedUserId;
+    }
 }
@@ -0,0 +1,38 @@
+package com.challenge.operations.util;
+
+import java.util.Arrays;
+
+/**
+ * Unsynchronized stack of primitive {@code byte} values backed by an array, used for the
+ * operator stack of the expression compiler.
+ *
+ * The backing array doubles in size whenever it is full.
+ */
+final class ByteStack {
+
+    private byte[] elements;
+    private int size;
+
+    ByteStack(int initialCapacity) {
+        elements = new byte[Math.max(initialCapacity, 1)];
+    }
+
+    void push(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length * 2);
+        }
+        elements[size++] = (byte) value;
+    }
+
+    int pop() {
+        return elements[--size];
+    }
+
+    int peek() {
+        return elements[size - 1];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,194 @@
+package com.challenge.operations.util;
+
+import com.challenge.operations.util.ExpressionEvaluator.InvalidExpressionException;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * An arithmetic expression compiled by {@link ExpressionEvaluator#compile(String)} into a
+ * flat postfix program.
+ *
+ * The program is an array of opcodes plus the numeric constants they push, in the order
+ * they are consumed. Each constant is kept both as a double and as the exact decimal
+ * written in the expression, so the program can run in either {@link NumericMode}.
+ * Instances are immutable and can be shared between threads; every call to
+ * {@link #eval()} works on an operand stack owned by the calling thread.
+ */
+public final class CompiledExpression {
+
+    static final byte PUSH = 0;
+    static final byte ADD = 1;
+    static final byte SUBTRACT = 2;
+    static final byte MULTIPLY = 3;
+    static final byte DIVIDE = 4;
+    static final byte SQRT = 5;
+
+    /**
+     * Bits of {@link #operatorMask()}, one per operator that can appear in an expression.
+     * A unary minus is part of a negative literal and does not count as a subtraction.
+     */
+    public static final int ADD_OPERATOR = 1 << ADD;
+    public static final int SUBTRACT_OPERATOR = 1 << SUBTRACT;
+    public static final int MULTIPLY_OPERATOR = 1 << MULTIPLY;
+    public static final int DIVIDE_OPERATOR = 1 << DIVIDE;
+    public static final int SQRT_OPERATOR = 1 << SQRT;
+
+    /**
+     * Operand stacks reused by every evaluation on the same thread, so evaluating does not
+     * allocate once the stack has grown to the deepest program seen by that thread.
+     */
+    private static final ThreadLocal<DoubleStack> OPERAND_STACKS = ThreadLocal.withInitial(() -> new DoubleStack(16));
+
+    private final byte[] code;
+    private final double[] constants;
+    private final BigDecimal[] decimalConstants;
+    private final int maxDepth;
+    private final int operatorMask;
+
+    /**
+     * Creates a program from already validated opcodes. The compiler guarantees that the
+     * operand stack never underflows and ends with exactly one value.
+     *
+     * @param code the opcodes in postfix order
+     * @param constants the values consumed by the {@code PUSH} opcodes, in order
+     * @param decimalConstants the exact decimal values of {@code constants}
+     * @param maxDepth the deepest the operand stack gets while running the program
+     * @param operatorMask the operators used by the program, see {@link #operatorMask()}
+     */
+    CompiledExpression(byte[] code, double[] constants, BigDecimal[] decimalConstants, int maxDepth, int operatorMask) {
+        this.code = code;
+        this.constants = constants;
+        this.decimalConstants = decimalConstants;
+        this.maxDepth = maxDepth;
+        this.operatorMask = operatorMask;
+    }
+
+    /**
+     * Returns the set of operators used by the expression, collected while compiling it.
+     *
+     * @return a combination of the {@code *_OPERATOR} bits, 0 for a lone number
+     */
+    public int operatorMask() {
+        return operatorMask;
+    }
+
+    /**
+     * Approximates the heap footprint of this program, used to bound the size of caches
+     * holding compiled expressions.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimatedBytes() {
+        return 64L + code.length + 48L * constants.length;
+    }
+
+    /**
+     * Runs the program with the given arithmetic.
+     *
+     * @param mode the arithmetic to use
+     * @param mathContext the precision and rounding used by {@link NumericMode#DECIMAL};
+     *                    ignored by {@link NumericMode#DOUBLE}
+     * @return the result of the expression
+     * @throws InvalidExpressionException on division by zero or the square root of a negative number
+     */
+    public BigDecimal evaluate(NumericMode mode, MathContext mathContext) {
+        if (mode == NumericMode.DECIMAL) {
+            return evalDecimal(mathContext);
+        }
+        return BigDecimal.valueOf(eval());
+    }
+
+    /**
+     * Runs the program and returns the value of the expression.
+     *
+     * @return the result of the expression
+     * @throws InvalidExpressionException on division by zero or the square root of a negative number
+     */
+    public double eval() {
+        DoubleStack stack = OPERAND_STACKS.get();
+        stack.clear();
+        stack.ensureCapacity(maxDepth);
+        int k = 0;
+        for (byte op : code) {
+            switch (op) {
+                case PUSH -> stack.push(constants[k++]);
+                case ADD -> {
+                    double b = stack.pop();
+                    stack.replaceTop(stack.peek() + b);
+                }
+                case SUBTRACT -> {
+                    double b = stack.pop();
+                    stack.replaceTop(stack.peek() - b);
+                }
+                case MULTIPLY -> {
+                    double b = stack.pop();
+                    stack.replaceTop(stack.peek() * b);
+                }
+                case DIVIDE -> {
+                    double b = stack.pop();
+                    if (b == 0) {  // Check division by zero
+                        throw new InvalidExpressionException("Division by zero is not allowed.");
+                    }
+                    stack.replaceTop(stack.peek() / b);
+                }
+                case SQRT -> {
+                    double a = stack.peek();
+                    if (a < 0) {
+                        throw new InvalidExpressionException("Cannot calculate the square root of a negative number.");
+                    }
+                    stack.replaceTop(Math.sqrt(a));
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + op);
+            }
+        }
+        return stack.pop();
+    }
+
+    /**
+     * Runs the program with {@link BigDecimal} arithmetic. Every operation is rounded to
+     * the given context, which bounds the cost of long chains of multiplications.
+     *
+     * @param mathContext the precision and rounding of every intermediate result
+     * @return the result of the expression
+     * @throws InvalidExpressionException on division by zero or the square root of a negative number
+     */
+    public BigDecimal evalDecimal(MathContext mathContext) {
+        BigDecimal[] stack = new BigDecimal[maxDepth];
+        int sp = 0;
+        int k = 0;
+        for (byte op : code) {
+            switch (op) {
+                case PUSH -> stack[sp++] = decimalConstants[k++];
+                case ADD -> {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1].add(stack[sp], mathContext);
+                }
+                case SUBTRACT -> {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1].subtract(stack[sp], mathContext);
+                }
+                case MULTIPLY -> {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1].multiply(stack[sp], mathContext);
+                }
+                case DIVIDE -> {
+                    BigDecimal b = stack[--sp];
+                    if (b.signum() == 0) {  // Check division by zero
+                        throw new InvalidExpressionException("Division by zero is not allowed.");
+                    }
+                    stack[sp - 1] = stack[sp - 1].divide(b, mathContext);
+                }
+                case SQRT -> {
+                    BigDecimal a = stack[sp - 1];
+                    if (a.signum() < 0) {
+                        throw new InvalidExpressionException("Cannot calculate the square root of a negative number.");
+                    }
+                    stack[sp - 1] = a.sqrt(mathContext);
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + op);
+            }
+        }
+        return stack[0];
+    }
+}
@@ -0,0 +1,54 @@
+package com.challenge.operations.util;
+
+import java.util.Arrays;
+
+/**
+ * Unsynchronized stack of primitive {@code double} values backed by an array.
+ *
+ * The backing array doubles in size whenever it is full and is never shrunk, so a stack
+ * that is reused keeps its capacity between uses. Callers are responsible for not popping
+ * an empty stack; the expression compiler validates operand counts up front.
+ */
+final class DoubleStack {
+
+    private double[] elements;
+    private int size;
+
+    DoubleStack(int initialCapacity) {
+        elements = new double[Math.max(initialCapacity, 1)];
+    }
+
+    void push(double value) {
+        if (size == elements.length) {
+            ensureCapacity(size + 1);
+        }
+        elements[size++] = value;
+    }
+
+    double pop() {
+        return elements[--size];
+    }
+
+    double peek() {
+        return elements[size - 1];
+    }
+
+    // Overwrites the top element, saving a pop and a push for unary operators
+    void replaceTop(double value) {
+        elements[size - 1] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(capacity, elements.length * 2));
+        }
+    }
+}
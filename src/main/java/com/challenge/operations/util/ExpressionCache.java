@@ -0,0 +1,159 @@
+package com.challenge.operations.util;
+
+import com.challenge.operations.dto.ExpressionCacheStatsDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of {@link CompiledExpression} programs keyed by the normalized text of
+ * the expression.
+ *
+ * The cache is limited both by number of entries and by an estimate of the memory held by
+ * keys and programs; the least recently used entries are evicted when either limit is
+ * exceeded. Expressions that fail to compile are not cached.
+ */
+@Component
+public class ExpressionCache {
+
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    /**
+     * Entries in access order, so the eldest entry is always the least recently used one.
+     * Guarded by {@code this}.
+     */
+    private final LinkedHashMap<String, CompiledExpression> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache with the given limits.
+     *
+     * @param maxEntries the maximum number of compiled expressions to keep
+     * @param maxBytes the maximum estimated memory, in bytes, used by keys and programs
+     */
+    public ExpressionCache(@Value("${expression.cache.max-entries:1024}") int maxEntries,
+                           @Value("${expression.cache.max-bytes:1048576}") long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the compiled program for the given expression, compiling and caching it on
+     * a miss.
+     *
+     * @param expression the arithmetic expression
+     * @return the compiled expression
+     * @throws ExpressionEvaluator.InvalidExpressionException if the expression is invalid
+     */
+    public CompiledExpression get(String expression) {
+        String key = normalize(expression);
+
+        synchronized (this) {
+            CompiledExpression cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+
+        misses.increment();
+        // Compile the text as sent, so error positions point into the client's expression
+        CompiledExpression compiled = evaluator.compile(expression);
+        long size = estimatedBytes(key, compiled);
+        if (size > maxBytes) {
+            return compiled;
+        }
+
+        synchronized (this) {
+            CompiledExpression previous = entries.putIfAbsent(key, compiled);
+            if (previous != null) {
+                return previous;
+            }
+            currentBytes += size;
+            evictIfNeeded();
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns the current hit, miss and eviction counters together with the cache size.
+     *
+     * @return a snapshot of the cache statistics
+     */
+    public ExpressionCacheStatsDTO stats() {
+        int size;
+        long bytes;
+        synchronized (this) {
+            size = entries.size();
+            bytes = currentBytes;
+        }
+        return new ExpressionCacheStatsDTO(hits.sum(), misses.sum(), evictions.sum(), size, bytes);
+    }
+
+    /**
+     * Removes every cached program. Counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    // Drops least recently used entries until both limits are respected; caller holds the lock
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, CompiledExpression>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || currentBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, CompiledExpression> eldest = iterator.next();
+            currentBytes -= estimatedBytes(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static long estimatedBytes(String key, CompiledExpression compiled) {
+        return 48L + 2L * key.length() + compiled.estimatedBytes();
+    }
+
+    /**
+     * Normalizes whitespace so that equivalent spellings of an expression share one cache
+     * entry. Whitespace is dropped, except that a run separating two number or word
+     * characters becomes a single space, since removing it would merge two tokens.
+     *
+     * @param expression the raw expression
+     * @return the normalized expression
+     */
+    static String normalize(String expression) {
+        if (expression == null) {
+            throw new ExpressionEvaluator.InvalidExpressionException("Invalid expression: expression is required.");
+        }
+        StringBuilder normalized = new StringBuilder(expression.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace && isWordChar(c) && isWordChar(normalized.charAt(normalized.length() - 1))) {
+                normalized.append(' ');
+            }
+            pendingSpace = false;
+            normalized.append(c);
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.';
+    }
+}
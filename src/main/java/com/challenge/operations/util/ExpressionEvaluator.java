@@ -1,137 +1,160 @@
 package com.challenge.operations.util;
 
-import java.util.EmptyStackException;
-import java.util.Stack;
-import java.util.StringTokenizer;
+import java.math.BigDecimal;
+import java.util.Arrays;
 
 public class ExpressionEvaluator {
 
     // Defines the precedence of operators
-    private int precedence(String operator) {
-        return switch (operator) {
-            case "+", "-" -> 1;
-            case "*", "/" -> 2;
-            case "sqrt" -> 3;
+    private int precedence(int token) {
+        return switch (token) {
+            case ExpressionLexer.PLUS, ExpressionLexer.MINUS -> 1;
+            case ExpressionLexer.STAR, ExpressionLexer.SLASH -> 2;
+            case ExpressionLexer.SQRT -> 3;
             default -> -1;
         };
     }
 
-    // Converts to postfix notation (RPN) using the Shunting-yard algorithm
-    private String toPostfix(String expression) {
-        Stack<String> stack = new Stack<>();
-        StringBuilder postfix = new StringBuilder();
-        StringTokenizer tokenizer = new StringTokenizer(expression, "+-*/() ", true);
-        boolean lastTokenWasOperator = true; // Helps detect consecutive operators
-        while (tokenizer.hasMoreTokens()) {
-            String token = tokenizer.nextToken().trim();
-            if (token.isEmpty()) continue;
-            if (token.matches("-?\\d+(\\.\\d+)?")) {  // Check if it is a number, allowing negative numbers
-                postfix.append(token).append(" ");
-                lastTokenWasOperator = false;
-            } else if (token.equals("sqrt")) {  // Check if it is the sqrt function
-                stack.push("sqrt");
-                lastTokenWasOperator = true;
-            } else if (token.matches("[+\\-*/]")) {  // Check if it is an operator
-                if (lastTokenWasOperator) {
-                    if (!token.equals("-")) {  // Allow '-' as a unary operator for negative numbers
-                        throw new InvalidExpressionException("Invalid expression: consecutive operators.");
-                    } else {
-                        // Allow unary minus and make sure it is part of the number token
-                        if (tokenizer.hasMoreTokens()) {
-                            String nextToken = tokenizer.nextToken().trim();
-                            if (nextToken.matches("\\d+(\\.\\d+)?")) {
-                                // Append the negative number directly to postfix
-                                postfix.append("-").append(nextToken).append(" ");
-                                lastTokenWasOperator = false;
-                                continue;
-                            } else {
-                                throw new InvalidExpressionException("Invalid expression: unexpected token after unary '-'.");
-                            }
-                        } else {
-                            throw new InvalidExpressionException("Invalid expression: missing number after unary '-'.");
-                        }
+    // Compiles the expression into a postfix program using the Shunting-yard algorithm
+    public CompiledExpression compile(String expression) {
+        if (expression == null) {
+            throw new InvalidExpressionException("Invalid expression: expression is required.");
+        }
+        ExpressionLexer lexer = new ExpressionLexer(expression);
+        Program program = new Program(expression.length());
+        ByteStack stack = new ByteStack(16);
+        boolean expectOperand = true; // Helps detect consecutive operators
+
+        for (int token = lexer.next(); token != ExpressionLexer.EOF; token = lexer.next()) {
+            switch (token) {
+                case ExpressionLexer.NUMBER -> {
+                    if (!expectOperand) {
+                        throw lexer.error("missing operator before number");
                     }
+                    program.push(lexer.number(), lexer.decimal());
+                    expectOperand = false;
                 }
-                while (!stack.isEmpty() && precedence(stack.peek()) >= precedence(token)) {
-                    postfix.append(stack.pop()).append(" ");
+                case ExpressionLexer.SQRT -> {
+                    if (!expectOperand) {
+                        throw lexer.error("missing operator before sqrt");
+                    }
+                    stack.push(token);
                 }
-                stack.push(token);
-                lastTokenWasOperator = true;
-            } else if (token.equals("(")) {  // Check if it is an open parenthesis
-                stack.push("(");
-                lastTokenWasOperator = true;
-            } else if (token.equals(")")) {  // Check if it is a closed parenthesis
-                while (!stack.isEmpty() && !stack.peek().equals("(")) {
-                    postfix.append(stack.pop()).append(" ");
+                case ExpressionLexer.LEFT_PAREN -> {
+                    if (!expectOperand) {
+                        throw lexer.error("missing operator before '('");
+                    }
+                    stack.push(token);
                 }
-                if (stack.isEmpty() || !stack.pop().equals("(")) {
-                    throw new InvalidExpressionException("Invalid expression: mismatched parentheses.");
+                case ExpressionLexer.RIGHT_PAREN -> {
+                    if (expectOperand) {
+                        throw lexer.error("unexpected ')'");
+                    }
+                    while (!stack.isEmpty() && stack.peek() != ExpressionLexer.LEFT_PAREN) {
+                        program.emit(stack.pop());
+                    }
+                    if (stack.isEmpty()) {
+                        throw lexer.error("mismatched parentheses");
+                    }
+                    stack.pop();
+                    if (!stack.isEmpty() && stack.peek() == ExpressionLexer.SQRT) {
+                        program.emit(stack.pop());
+                    }
                 }
-                if (!stack.isEmpty() && stack.peek().equals("sqrt")) {
-                    postfix.append(stack.pop()).append(" ");
+                default -> {  // Binary operators
+                    if (expectOperand) {
+                        if (token != ExpressionLexer.MINUS) {
+                            throw lexer.error("consecutive operators");
+                        }
+                        // Allow '-' as a unary operator for negative numbers
+                        if (lexer.next() != ExpressionLexer.NUMBER) {
+                            throw lexer.error("expected a number after unary '-'");
+                        }
+                        program.push(-lexer.number(), lexer.decimal().negate());
+                        expectOperand = false;
+                        continue;
+                    }
+                    while (!stack.isEmpty() && precedence(stack.peek()) >= precedence(token)) {
+                        program.emit(stack.pop());
+                    }
+                    stack.push(token);
+                    expectOperand = true;
                 }
-                lastTokenWasOperator = false;
-            } else {
-                throw new InvalidExpressionException("Invalid operation: Cannot calculate the square root of a negative number.");
             }
         }
-        if (lastTokenWasOperator && !postfix.toString().endsWith("- ")) {
+        if (expectOperand) {
             throw new InvalidExpressionException("Invalid expression: ends with an operator.");
         }
         while (!stack.isEmpty()) {  // Remove remaining operators
-            String op = stack.pop();
-            if (op.equals("(") || op.equals(")")) {
+            int op = stack.pop();
+            if (op == ExpressionLexer.LEFT_PAREN) {
                 throw new InvalidExpressionException("Invalid expression: mismatched parentheses.");
             }
-            postfix.append(op).append(" ");
+            program.emit(op);
         }
-        return postfix.toString();
+        return program.build();
     }
 
-    // Evaluates postfix expression
+    // Evaluates the expression by compiling it and running the resulting program
     public double evaluate(String expression) {
-        try {
-            String postfix = toPostfix(expression);
-            Stack<Double> stack = new Stack<>();
-            for (String token : postfix.split("\\s")) {
-                if (token.matches("-?\\d+(\\.\\d+)?")) {  // Numbers, including negative
-                    stack.push(Double.valueOf(token));
-                }                else if (token.matches("[+\\-*/]")) {  // Operators
-                    if (stack.size() < 2) {
-                        throw new InvalidExpressionException("Invalid expression: insufficient values for operator " + token);
-                    }
-                    double b = stack.pop();
-                    double a = stack.pop();
-                    switch (token) {
-                        case "+" -> stack.push(a + b);
-                        case "-" -> stack.push(a - b);
-                        case "*" -> stack.push(a * b);
-                        case "/" -> {
-                            if (b == 0) {  // Check division by zero
-                                throw new InvalidExpressionException("Division by zero is not allowed.");
-                            }
-                            stack.push(a / b);
-                        }
-                    }
-                } else if (token.equals("sqrt") || token.equals("√")) {  // Check if it is the sqrt function
-                    if (stack.isEmpty()) {
-                        throw new InvalidExpressionException("Invalid expression: no value for sqrt.");
-                    }
-                    double a = stack.pop();
-                    if (a < 0) {
-                        throw new InvalidExpressionException("Cannot calculate the square root of a negative number.");
-                    }
-                    stack.push(Math.sqrt(a));
-                } else {
-                    throw new InvalidExpressionException("Invalid token in postfix: " + token);
+        return compile(expression).eval();
+    }
+
+    // Accumulates opcodes and constants while tracking the operand stack depth
+    private static final class Program {
+
+        private final byte[] code;
+        private final double[] constants;
+        private final BigDecimal[] decimalConstants;
+        private int codeLength;
+        private int constantCount;
+        private int depth;
+        private int maxDepth;
+        private int operatorMask;
+
+        // Every token is at least one character long, so the input length bounds the program size
+        Program(int capacity) {
+            code = new byte[capacity];
+            constants = new double[capacity];
+            decimalConstants = new BigDecimal[capacity];
+        }
+
+        void push(double value, BigDecimal decimalValue) {
+            code[codeLength++] = CompiledExpression.PUSH;
+            decimalConstants[constantCount] = decimalValue;
+            constants[constantCount++] = value;
+            maxDepth = Math.max(maxDepth, ++depth);
+        }
+
+        void emit(int token) {
+            if (token == ExpressionLexer.SQRT) {
+                if (depth < 1) {
+                    throw new InvalidExpressionException("Invalid expression: no value for sqrt.");
                 }
+                code[codeLength++] = CompiledExpression.SQRT;
+                operatorMask |= CompiledExpression.SQRT_OPERATOR;
+                return;
             }
-            if (stack.size() != 1) {
+            if (depth < 2) {
+                throw new InvalidExpressionException("Invalid expression: insufficient values for operator.");
+            }
+            byte op = switch (token) {
+                case ExpressionLexer.PLUS -> CompiledExpression.ADD;
+                case ExpressionLexer.MINUS -> CompiledExpression.SUBTRACT;
+                case ExpressionLexer.STAR -> CompiledExpression.MULTIPLY;
+                default -> CompiledExpression.DIVIDE;
+            };
+            code[codeLength++] = op;
+            operatorMask |= 1 << op;
+            depth--;
+        }
+
+        CompiledExpression build() {
+            if (depth != 1) {
                 throw new InvalidExpressionException("Invalid expression: too many values.");
             }
-            return stack.pop();
-        } catch (EmptyStackException e) {
-            throw new InvalidExpressionException("Invalid expression: missing values.");
+            return new CompiledExpression(Arrays.copyOf(code, codeLength),
+                    Arrays.copyOf(constants, constantCount), Arrays.copyOf(decimalConstants, constantCount), maxDepth, operatorMask);
         }
     }
 
@@ -0,0 +1,202 @@
+package com.challenge.operations.util;
+
+import com.challenge.operations.util.ExpressionEvaluator.InvalidExpressionException;
+
+import java.math.BigDecimal;
+
+/**
+ * Single-pass scanner for arithmetic expressions.
+ *
+ * The lexer walks the input by index and reports one token at a time. Numbers are parsed
+ * in place from their digits, so scanning creates no substrings or regular expressions in
+ * the common case; the exact decimal value of a number is only built when requested.
+ * Positions reported in error messages are 1-based.
+ */
+final class ExpressionLexer {
+
+    static final int EOF = 0;
+    static final int NUMBER = 1;
+    static final int PLUS = 2;
+    static final int MINUS = 3;
+    static final int STAR = 4;
+    static final int SLASH = 5;
+    static final int LEFT_PAREN = 6;
+    static final int RIGHT_PAREN = 7;
+    static final int SQRT = 8;
+
+    // Powers of ten that are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Doubles hold every integer with up to 15 decimal digits exactly
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    // Longs hold every integer with up to 18 decimal digits
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final String input;
+    private int pos;
+
+    private int tokenStart;
+    private double number;
+    private long mantissa;
+    private int fractionDigits;
+    private boolean mantissaExact;
+
+    ExpressionLexer(String input) {
+        this.input = input;
+    }
+
+    /**
+     * Scans the next token.
+     *
+     * @return the type of the token, {@link #EOF} at the end of the input
+     * @throws InvalidExpressionException if the input contains an unexpected character
+     */
+    int next() {
+        int length = input.length();
+        while (pos < length && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        tokenStart = pos;
+        if (pos == length) {
+            return EOF;
+        }
+
+        char c = input.charAt(pos);
+        switch (c) {
+            case '+' -> {
+                pos++;
+                return PLUS;
+            }
+            case '-' -> {
+                pos++;
+                return MINUS;
+            }
+            case '*' -> {
+                pos++;
+                return STAR;
+            }
+            case '/' -> {
+                pos++;
+                return SLASH;
+            }
+            case '(' -> {
+                pos++;
+                return LEFT_PAREN;
+            }
+            case ')' -> {
+                pos++;
+                return RIGHT_PAREN;
+            }
+            case '√' -> {
+                pos++;
+                return SQRT;
+            }
+            default -> {
+                if (isDigit(c)) {
+                    scanNumber();
+                    return NUMBER;
+                }
+                if (input.startsWith("sqrt", pos) && !isWordChar(pos + 4)) {
+                    pos += 4;
+                    return SQRT;
+                }
+                throw error("unexpected character '" + c + "'");
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the last {@link #NUMBER} token.
+     *
+     * @return the parsed number
+     */
+    double number() {
+        return number;
+    }
+
+    /**
+     * Returns the exact decimal value of the last {@link #NUMBER} token.
+     *
+     * @return the number as written in the expression
+     */
+    BigDecimal decimal() {
+        if (mantissaExact) {
+            return BigDecimal.valueOf(mantissa, fractionDigits);
+        }
+        return new BigDecimal(input.substring(tokenStart, pos));
+    }
+
+    /**
+     * Returns the 1-based position where the last token starts.
+     *
+     * @return the position of the last token
+     */
+    int position() {
+        return tokenStart + 1;
+    }
+
+    /**
+     * Builds an exception for a problem at the start of the last token.
+     *
+     * @param problem description of the problem
+     * @return the exception to throw
+     */
+    InvalidExpressionException error(String problem) {
+        return new InvalidExpressionException("Invalid expression: " + problem + " at position " + position() + ".");
+    }
+
+    // Parses digits+ ('.' digits+)? starting at pos
+    private void scanNumber() {
+        int length = input.length();
+        mantissa = 0;
+        fractionDigits = 0;
+        int significantDigits = 0;
+
+        while (pos < length && isDigit(input.charAt(pos))) {
+            significantDigits = appendDigit(input.charAt(pos++) - '0', significantDigits, false);
+        }
+        if (pos < length && input.charAt(pos) == '.') {
+            if (pos + 1 >= length || !isDigit(input.charAt(pos + 1))) {
+                throw new InvalidExpressionException("Invalid expression: malformed number at position " + (tokenStart + 1) + ".");
+            }
+            pos++;
+            while (pos < length && isDigit(input.charAt(pos))) {
+                significantDigits = appendDigit(input.charAt(pos++) - '0', significantDigits, true);
+            }
+        }
+        mantissaExact = significantDigits <= MAX_LONG_DIGITS;
+
+        if (significantDigits <= MAX_EXACT_DIGITS && fractionDigits < POWERS_OF_TEN.length) {
+            // Both operands are exact, so the division is correctly rounded
+            number = mantissa / POWERS_OF_TEN[fractionDigits];
+        } else {
+            number = Double.parseDouble(input.substring(tokenStart, pos));
+        }
+    }
+
+    // Accumulates one digit into the mantissa while it still fits in a long
+    private int appendDigit(int digit, int significantDigits, boolean fraction) {
+        if (mantissa != 0 || digit != 0) {
+            significantDigits++;
+        }
+        if (significantDigits <= MAX_LONG_DIGITS) {
+            mantissa = mantissa * 10 + digit;
+            if (fraction) {
+                fractionDigits++;
+            }
+        }
+        return significantDigits;
+    }
+
+    private boolean isWordChar(int index) {
+        return index < input.length() && Character.isLetterOrDigit(input.charAt(index));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
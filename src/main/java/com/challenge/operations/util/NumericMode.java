@@ -0,0 +1,20 @@
+package com.challenge.operations.util;
+
+/**
+ * Arithmetic used when running a {@link CompiledExpression}.
+ */
+public enum NumericMode {
+
+    /**
+     * Binary floating point arithmetic. Fastest, but decimal fractions such as
+     * {@code 0.1} are not represented exactly.
+     */
+    DOUBLE,
+
+    /**
+     * {@link java.math.BigDecimal} arithmetic rounded with a configurable
+     * {@link java.math.MathContext}. Decimal literals are exact and only division and
+     * square roots (or results longer than the precision) are rounded.
+     */
+    DECIMAL
+}
@@ -0,0 +1,137 @@
+package com.challenge.operations.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timer wheel for expiring many items with coarse deadlines.
+ *
+ * Time is divided into ticks of a fixed length, and the wheel is a ring of buckets, one per
+ * tick. An item is placed in the bucket of the tick its deadline falls in, so scheduling and
+ * cancelling are O(1) regardless of how many items are pending; advancing the wheel only
+ * visits the buckets of the ticks that elapsed. Items whose deadline is more than one turn
+ * of the wheel away share a bucket with nearer ones and are skipped until their turn comes.
+ * Deadlines are rounded up to the next tick, so an item never expires early.
+ *
+ * The wheel is driven by the caller through {@link #advance(long)} and does not own a thread.
+ * All methods are thread-safe.
+ *
+ * @param <T> the type of the items scheduled on the wheel
+ */
+public final class TimerWheel<T> {
+
+    private final long tickMillis;
+    private final List<List<Entry>> buckets;
+    private long currentTick;
+    private int size;
+
+    /**
+     * A scheduled item, which can be cancelled before it expires.
+     */
+    public interface Timeout {
+
+        /**
+         * Removes the item from the wheel; it is not returned by later calls to {@link #advance(long)}.
+         */
+        void cancel();
+    }
+
+    private final class Entry implements Timeout {
+        private final T item;
+        private final long tick;
+        private boolean cancelled;
+
+        private Entry(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (TimerWheel.this) {
+                if (!cancelled) {
+                    cancelled = true;
+                    size--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param tickMillis the length of a tick, i.e. the resolution of deadlines
+     * @param wheelSize the number of buckets; deadlines up to {@code tickMillis * wheelSize}
+     *                  ahead are expired without being revisited
+     * @param nowMillis the current time, from the same clock passed to {@link #advance(long)}
+     */
+    public TimerWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("The tick length and the wheel size must be positive.");
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules an item to expire at the given time.
+     *
+     * @param item the item to return from {@link #advance(long)} once its deadline has passed
+     * @param deadlineMillis when the item expires
+     * @return a handle to cancel the item
+     */
+    public synchronized Timeout schedule(T item, long deadlineMillis) {
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        Entry entry = new Entry(item, tick);
+        buckets.get((int) (tick % buckets.size())).add(entry);
+        size++;
+        return entry;
+    }
+
+    /**
+     * Moves the wheel to the given time and removes the items whose deadline has passed.
+     *
+     * @param nowMillis the current time
+     * @return the expired items, in no particular order
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        if (targetTick <= currentTick) {
+            return expired;
+        }
+
+        // After a long pause every bucket is due, so each is visited once instead of once per tick
+        long ticks = Math.min(targetTick - currentTick, buckets.size());
+        for (long i = 1; i <= ticks; i++) {
+            Iterator<Entry> entries = buckets.get((int) ((currentTick + i) % buckets.size())).iterator();
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (entry.cancelled) {
+                    entries.remove();
+                } else if (entry.tick <= targetTick) {
+                    entries.remove();
+                    entry.cancelled = true;
+                    size--;
+                    expired.add(entry.item);
+                }
+            }
+        }
+        currentTick = targetTick;
+        return expired;
+    }
+
+    /**
+     * Returns the number of items scheduled and neither expired nor cancelled.
+     *
+     * @return the number of pending items
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
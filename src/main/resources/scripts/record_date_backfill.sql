@@ -0,0 +1,12 @@
+-- Keyset pagination orders records by (date, id) and seeks with a row-value comparison on
+-- it, so every row needs a date. Run once, before deploying a build that declares the column
+-- NOT NULL: ddl-auto=update does not change the nullability of an existing column.
+-- Rows created before the date was set on insert get the epoch, which keeps them where they
+-- sorted while undated: before all others.
+-- With archiving enabled, the epoch is past any retention period, so the next archiver run
+-- moves every backfilled row to record_archive, in batches like any other expired record.
+-- Listings merge the archive back in, so the rows stay listed in the same order, and they
+-- can still be deleted; only the size of that first run grows with their number.
+UPDATE record SET date = '1970-01-01 00:00:00' WHERE date IS NULL;
+ALTER TABLE record MODIFY date DATETIME(6) NOT NULL;
+ALTER TABLE record_archive MODIFY date DATETIME(6) NOT NULL;
@@ -0,0 +1,3 @@
+-- Record IDs are allocated from the record_seq table in blocks of 50 (see Record.id).
+-- Run once after the table is created so new IDs start above the existing rows.
+UPDATE record_seq SET next_val = (SELECT COALESCE(MAX(id), 0) + 51 FROM record);
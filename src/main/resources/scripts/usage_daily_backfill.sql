@@ -0,0 +1,12 @@
+-- Usage aggregates are maintained as records are saved (see UsageService).
+-- Run once, before enabling the new version, to seed them from the existing history.
+-- Records do not store the charged amount, so the current operation cost is used.
+INSERT INTO usage_daily (user_id, usage_date, operation_type, operation_count, total_amount)
+SELECT h.user_id, DATE(h.date), o.type, COUNT(*), COALESCE(SUM(o.cost), 0)
+FROM (SELECT user_id, operation_id, date FROM record
+      UNION ALL
+      SELECT user_id, operation_id, date FROM record_archive) h
+JOIN operation o ON o.id = h.operation_id
+WHERE h.date IS NOT NULL
+GROUP BY h.user_id, DATE(h.date), o.type
+ON DUPLICATE KEY UPDATE operation_count = VALUES(operation_count), total_amount = VALUES(total_amount);
@@ -0,0 +1,63 @@
+package com.challenge.operations.config;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlFilterTest {
+
+    @Test
+    void testRejectsRequestsBeyondLimit() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1, 0);
+        MockHttpServletResponse nestedResponse = new MockHttpServletResponse();
+
+        // The second request arrives while the first one still holds the only permit
+        FilterChain holdingChain = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest(), nestedResponse, new MockFilterChain());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), response, holdingChain);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(503, nestedResponse.getStatus());
+        assertEquals("1", nestedResponse.getHeader("Retry-After"));
+        assertEquals(1, filter.stats().admitted());
+        assertEquals(1, filter.stats().rejected());
+        assertEquals(0, filter.stats().inFlight());
+    }
+
+    @Test
+    void testAsyncRequestKeepsPermitUntilComplete() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(true, 1, 0);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+
+        FilterChain asyncChain = (req, res) -> req.startAsync();
+        filter.doFilter(request, new MockHttpServletResponse(), asyncChain);
+
+        assertEquals(1, filter.stats().inFlight());
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+
+        request.getAsyncContext().complete();
+
+        assertEquals(0, filter.stats().inFlight());
+    }
+
+    @Test
+    void testDisabledFilterAdmitsEverything() throws Exception {
+        AdmissionControlFilter filter = new AdmissionControlFilter(false, 1, 0);
+        MockHttpServletResponse nestedResponse = new MockHttpServletResponse();
+
+        FilterChain holdingChain = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest(), nestedResponse, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), holdingChain);
+
+        assertEquals(200, nestedResponse.getStatus());
+        assertEquals(0, filter.stats().rejected());
+    }
+}
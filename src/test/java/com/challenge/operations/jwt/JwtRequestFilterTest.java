@@ -0,0 +1,41 @@
+package com.challenge.operations.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtRequestFilterTest {
+
+    private final JwtRequestFilter filter = new JwtRequestFilter();
+
+    @Test
+    void testPrincipalFromClaims_RolesList() {
+        Claims claims = Jwts.claims(Map.of("uid", 42, "roles", List.of("ADMIN", "ROLE_USER")));
+        claims.setSubject("alice");
+
+        AuthenticatedUser principal = filter.principalFromClaims(claims);
+
+        assertEquals(42L, principal.getId());
+        assertEquals("alice", principal.getUsername());
+        assertEquals(List.of("ROLE_ADMIN", "ROLE_USER"),
+                principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).sorted().toList());
+    }
+
+    @Test
+    void testPrincipalFromClaims_DefaultsToUserRole() {
+        Claims claims = Jwts.claims(Map.of("uid", 7L));
+        claims.setSubject("bob");
+
+        AuthenticatedUser principal = filter.principalFromClaims(claims);
+
+        assertEquals(7L, principal.getId());
+        assertEquals(List.of("ROLE_USER"),
+                principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+}
@@ -0,0 +1,66 @@
+package com.challenge.operations.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "uQfBrZjTy5uxIfbI6XjHV8XGfqdPF2X6Y4NU/UgtZs0=";
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxEntries", 10);
+        jwtUtil.init();
+    }
+
+    @Test
+    void testParseClaims_ValidToken() {
+        String token = token("alice", new Date(System.currentTimeMillis() + 60_000));
+
+        Claims claims = jwtUtil.parseClaims(token);
+
+        assertEquals("alice", claims.getSubject());
+        assertSame(claims, jwtUtil.parseClaims(token));
+        assertTrue(jwtUtil.validateToken(claims, new AuthenticatedUser(1L, "alice", "", List.of())));
+        assertFalse(jwtUtil.validateToken(claims, new AuthenticatedUser(2L, "bob", "", List.of())));
+    }
+
+    @Test
+    void testParseClaims_ExpiredToken() {
+        String token = token("alice", new Date(System.currentTimeMillis() - 60_000));
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.parseClaims(token));
+    }
+
+    @Test
+    void testParseClaims_TamperedToken() {
+        String token = token("alice", new Date(System.currentTimeMillis() + 60_000));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtUtil.parseClaims(tampered));
+    }
+
+    private static String token(String subject, Date expiration) {
+        return Jwts.builder()
+                .setSubject(subject)
+                .setExpiration(expiration)
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+    }
+}
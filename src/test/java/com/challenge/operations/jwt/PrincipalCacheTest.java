@@ -0,0 +1,81 @@
+package com.challenge.operations.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrincipalCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<String, AuthenticatedUser> loader = username -> {
+        loads.incrementAndGet();
+        return new AuthenticatedUser(1L, username, "", List.of());
+    };
+
+    @Test
+    void testGet_ReusesCachedPrincipal() {
+        PrincipalCache cache = new PrincipalCache(60_000, 10);
+
+        AuthenticatedUser first = cache.get("alice", loader);
+        AuthenticatedUser second = cache.get("alice", loader);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testEvict_ReloadsPrincipal() {
+        PrincipalCache cache = new PrincipalCache(60_000, 10);
+
+        cache.get("alice", loader);
+        cache.evict("alice");
+        cache.get("alice", loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testEvict_DuringLoadKeepsStalePrincipalOut() {
+        PrincipalCache cache = new PrincipalCache(60_000, 10);
+
+        AuthenticatedUser stale = cache.get("alice", username -> {
+            // The user changes while its row is being read
+            cache.evict(username);
+            return loader.apply(username);
+        });
+        AuthenticatedUser fresh = cache.get("alice", loader);
+
+        assertNotSame(stale, fresh);
+        assertEquals(2, loads.get());
+        assertSame(fresh, cache.get("alice", loader));
+    }
+
+    @Test
+    void testGet_DropsLeastRecentlyUsedBeyondLimit() {
+        PrincipalCache cache = new PrincipalCache(60_000, 2);
+
+        cache.get("alice", loader);
+        cache.get("bob", loader);
+        cache.get("alice", loader);
+        cache.get("carol", loader);
+        cache.get("alice", loader);
+        cache.get("bob", loader);
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void testGet_ZeroTtlDisablesCache() {
+        PrincipalCache cache = new PrincipalCache(0, 10);
+
+        cache.get("alice", loader);
+        cache.get("alice", loader);
+
+        assertEquals(2, loads.get());
+    }
+}
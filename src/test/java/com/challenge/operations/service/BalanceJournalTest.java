@@ -0,0 +1,97 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.entity.BalanceEntry;
+import com.challenge.operations.exception.InsufficientBalanceException;
+import com.challenge.operations.repository.BalanceEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BalanceJournalTest {
+
+    @Mock
+    private BalanceEntryRepository entryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BalanceJournal balanceJournal;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(balanceJournal, "enabled", true);
+        balanceJournal.start();
+        when(entryRepository.lockCurrentBalance(1L)).thenReturn(Optional.of(new BigDecimal("10.00")));
+    }
+
+    @Test
+    void testDebit_AppendsNegativeEntry() {
+        assertEquals(new BigDecimal("7.00"), balanceJournal.debit(1L, new BigDecimal("3.00")));
+
+        BalanceEntry entry = savedEntry();
+        assertEquals(new BigDecimal("-3.00"), entry.getAmount());
+        assertEquals(BalanceEntry.Kind.DEBIT, entry.getKind());
+        assertEquals(1L, entry.getUserId());
+    }
+
+    @Test
+    void testDebit_InsufficientBalanceAppendsNothing() {
+        assertThrows(InsufficientBalanceException.class, () -> balanceJournal.debit(1L, new BigDecimal("10.01")));
+        verify(entryRepository, never()).save(any());
+    }
+
+    @Test
+    void testDebit_UnknownUser() {
+        when(entryRepository.lockCurrentBalance(2L)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> balanceJournal.debit(2L, BigDecimal.ONE));
+    }
+
+    @Test
+    void testCredit_AppendsPositiveEntry() {
+        balanceJournal.credit(1L, new BigDecimal("5.00"));
+
+        BalanceEntry entry = savedEntry();
+        assertEquals(BalanceEntry.Kind.CREDIT, entry.getKind());
+        assertEquals(new BigDecimal("5.00"), entry.getAmount());
+        verify(entryRepository, never()).lockCurrentBalance(any());
+        verify(entryRepository, never()).findCurrentBalance(any());
+    }
+
+    @Test
+    void testCompact_FoldsEntriesInBatches() {
+        ReflectionTestUtils.setField(balanceJournal, "compactionBatchSize", 2);
+        when(entryRepository.findUncompactedIds(any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L));
+        when(entryRepository.markCompacted(anyCollection())).thenReturn(2).thenReturn(1);
+
+        assertEquals(3, balanceJournal.compact());
+
+        verify(entryRepository).addToStoredBalances(List.of(1L, 2L));
+        verify(entryRepository).addToStoredBalances(List.of(3L));
+        verify(entryRepository, times(2)).findUncompactedIds(any(Pageable.class));
+    }
+
+    private BalanceEntry savedEntry() {
+        ArgumentCaptor<BalanceEntry> saved = ArgumentCaptor.forClass(BalanceEntry.class);
+        verify(entryRepository).save(saved.capture());
+        return saved.getValue();
+    }
+}
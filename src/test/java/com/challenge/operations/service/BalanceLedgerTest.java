@@ -0,0 +1,202 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.exception.InsufficientBalanceException;
+import com.challenge.operations.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BalanceLedgerTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BalanceLedger balanceLedger;
+
+    @TempDir
+    Path walDir;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(balanceLedger, "enabled", true);
+        ReflectionTestUtils.setField(balanceLedger, "walDir", walDir.toString());
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class))).thenReturn(List.of());
+        when(userRepository.findBalanceById(1L)).thenReturn(Optional.of(new BigDecimal("100.00")));
+    }
+
+    @Test
+    void testDebit_AppliesInMemoryUntilFlush() {
+        balanceLedger.start();
+
+        assertEquals(new BigDecimal("95.00"), balanceLedger.debit(1L, new BigDecimal("5.00")));
+        assertEquals(new BigDecimal("92.50"), balanceLedger.debit(1L, new BigDecimal("2.5")));
+        assertThrows(InsufficientBalanceException.class, () -> balanceLedger.debit(1L, new BigDecimal("92.51")));
+
+        assertEquals(new BigDecimal("92.50"), balanceLedger.balance(1L));
+        verify(userRepository, times(1)).findBalanceById(1L);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testDebit_RejectsAmountsFinerThanScale() {
+        balanceLedger.start();
+
+        assertThrows(IllegalArgumentException.class, () -> balanceLedger.debit(1L, new BigDecimal("0.001")));
+    }
+
+    @Test
+    void testFlush_WritesNetChangeAndCheckpoint() throws Exception {
+        balanceLedger.start();
+        balanceLedger.debit(1L, new BigDecimal("5.00"));
+        balanceLedger.debit(1L, new BigDecimal("5.00"));
+        balanceLedger.credit(1L, new BigDecimal("1.00"));
+
+        assertEquals(1, balanceLedger.flush());
+
+        List<Object[]> args = captureBatch();
+        assertEquals(1, args.size());
+        assertEquals(new BigDecimal("-9.00"), args.get(0)[0]);
+        assertEquals(1L, args.get(0)[1]);
+        verify(jdbcTemplate).update(contains("balance_ledger_checkpoint"), eq(1L));
+        assertEquals(List.of("balance-0000000000000000002.wal"), segmentNames());
+        assertEquals(0, balanceLedger.flush());
+    }
+
+    @Test
+    void testFlush_FailureKeepsChangesForNextFlush() throws Exception {
+        balanceLedger.start();
+        balanceLedger.debit(1L, new BigDecimal("5.00"));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("down"));
+
+        assertEquals(0, balanceLedger.flush());
+        assertEquals(2, segmentNames().size());
+
+        reset(jdbcTemplate);
+        balanceLedger.debit(1L, new BigDecimal("1.00"));
+        assertEquals(1, balanceLedger.flush());
+
+        assertEquals(new BigDecimal("-6.00"), captureBatch().get(0)[0]);
+        verify(jdbcTemplate).update(contains("balance_ledger_checkpoint"), eq(2L));
+        assertEquals(List.of("balance-0000000000000000003.wal"), segmentNames());
+    }
+
+    @Test
+    void testStart_ReplaysFirstSegmentWithoutCheckpoint() throws Exception {
+        Files.writeString(walDir.resolve("balance-0000000000000000001.wal"), "1 -300\n", StandardCharsets.US_ASCII);
+
+        balanceLedger.start();
+
+        List<Object[]> args = captureBatch();
+        assertEquals(1, args.size());
+        assertEquals(new BigDecimal("-3.00"), args.get(0)[0]);
+        assertEquals(1L, args.get(0)[1]);
+        verify(jdbcTemplate).update(contains("balance_ledger_checkpoint"), eq(1L));
+        assertEquals(List.of("balance-0000000000000000002.wal"), segmentNames());
+    }
+
+    @Test
+    void testStart_ReplaysSegmentsAfterCheckpoint() throws Exception {
+        Files.writeString(walDir.resolve("balance-0000000000000000003.wal"), "1 -100\n", StandardCharsets.US_ASCII);
+        Files.writeString(walDir.resolve("balance-0000000000000000004.wal"), "1 -500\n7 250\n1 -2", StandardCharsets.US_ASCII);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class))).thenReturn(List.of(3L));
+
+        balanceLedger.start();
+
+        List<Object[]> args = captureBatch();
+        assertEquals(2, args.size());
+        for (Object[] arg : args) {
+            assertEquals(arg[1].equals(1L) ? new BigDecimal("-5.00") : new BigDecimal("2.50"), arg[0]);
+        }
+        verify(jdbcTemplate).update(contains("balance_ledger_checkpoint"), eq(4L));
+        assertEquals(List.of("balance-0000000000000000005.wal"), segmentNames());
+    }
+
+    @Test
+    void testDebit_CreditedBackOnRollback() {
+        balanceLedger.start();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            balanceLedger.debit(1L, new BigDecimal("5.00"));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(new BigDecimal("100.00"), balanceLedger.balance(1L));
+    }
+
+    @Test
+    void testCheckConsistency_ReloadsChangedBalances() {
+        balanceLedger.start();
+        balanceLedger.debit(1L, new BigDecimal("5.00"));
+        when(userRepository.findBalancesByIdIn(List.of(1L)))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, new BigDecimal("95.00")}))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, new BigDecimal("195.00")}));
+
+        assertEquals(0, balanceLedger.checkConsistency());
+        assertEquals(1, balanceLedger.checkConsistency());
+
+        assertEquals(new BigDecimal("195.00"), balanceLedger.balance(1L));
+        assertEquals(1, balanceLedger.stats().mismatches());
+    }
+
+    @Test
+    void testCheckConsistency_KeepsBalanceChangedDuringCheck() {
+        balanceLedger.start();
+        balanceLedger.debit(1L, new BigDecimal("5.00"));
+        balanceLedger.flush();
+        when(userRepository.findBalancesByIdIn(List.of(1L))).thenAnswer(invocation -> {
+            // A debit goes through while the database is read, which the check must not hold up
+            balanceLedger.debit(1L, new BigDecimal("10.00"));
+            return List.<Object[]>of(new Object[]{1L, new BigDecimal("95.00")});
+        });
+
+        assertEquals(0, balanceLedger.checkConsistency());
+
+        assertEquals(new BigDecimal("85.00"), balanceLedger.balance(1L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> captureBatch() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("update user"), captor.capture());
+        return captor.getValue();
+    }
+
+    private List<String> segmentNames() throws Exception {
+        try (Stream<Path> files = Files.list(walDir)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.dto.HoldDTO;
+import com.challenge.operations.entity.BalanceHold;
+import com.challenge.operations.exception.InsufficientBalanceException;
+import com.challenge.operations.repository.BalanceHoldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HoldServiceTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private BalanceHoldRepository holdRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private HoldService holdService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(holdService, "instanceId", "node-a");
+        when(holdRepository.settle(anyString(), any(), any())).thenReturn(1);
+        when(userService.debitBalance(1L, new BigDecimal("10.00"))).thenReturn(new BigDecimal("90.00"));
+        when(holdRepository.findById(anyString())).thenAnswer(invocation -> {
+            BalanceHold stored = new BalanceHold();
+            stored.setId(invocation.getArgument(0));
+            stored.setStatus(BalanceHold.Status.OPEN);
+            return Optional.of(stored);
+        });
+    }
+
+    @Test
+    void testConsume_ChargesHoldWithoutTouchingBalance() {
+        holdService.start();
+        HoldDTO hold = holdService.place(1L, new BigDecimal("10.00"), null);
+
+        assertEquals(new BigDecimal("97.00"), holdService.consume(hold.id(), 1L, new BigDecimal("3.00")));
+        assertEquals(new BigDecimal("95.00"), holdService.consume(hold.id(), 1L, new BigDecimal("2.00")));
+        assertThrows(InsufficientBalanceException.class,
+                () -> holdService.consume(hold.id(), 1L, new BigDecimal("5.01")));
+        assertThrows(IllegalArgumentException.class, () -> holdService.consume(hold.id(), 2L, BigDecimal.ONE));
+
+        assertEquals(new BigDecimal("5.00"), holdService.get(hold.id(), 1L).remaining());
+        verify(userService, times(1)).debitBalance(1L, new BigDecimal("10.00"));
+        verifyNoMoreInteractions(userService);
+    }
+
+    @Test
+    void testCapture_CreditsBackUnusedAmount() {
+        holdService.start();
+        HoldDTO hold = holdService.place(1L, new BigDecimal("10.00"), 60L);
+        holdService.consume(hold.id(), 1L, new BigDecimal("3.00"));
+
+        HoldDTO captured = holdService.capture(hold.id(), 1L);
+
+        assertEquals(BalanceHold.Status.CAPTURED, captured.status());
+        assertEquals(new BigDecimal("7.00"), captured.remaining());
+        verify(userService).creditBalance(1L, new BigDecimal("7.00"));
+        ArgumentCaptor<BalanceHold> saved = ArgumentCaptor.forClass(BalanceHold.class);
+        verify(holdRepository).save(saved.capture());
+        assertEquals("node-a", saved.getValue().getOwner());
+        verify(holdRepository).settle(hold.id(), BalanceHold.Status.CAPTURED, new BigDecimal("3.00"));
+        assertEquals(0, holdService.openHolds());
+        assertThrows(IllegalArgumentException.class, () -> holdService.capture(hold.id(), 1L));
+        assertThrows(IllegalArgumentException.class, () -> holdService.consume(hold.id(), 1L, BigDecimal.ONE));
+    }
+
+    @Test
+    void testCapture_WaitsForPendingChargeAndSkipsRolledBack() throws Exception {
+        holdService.start();
+        HoldDTO hold = holdService.place(1L, new BigDecimal("10.00"), 60L);
+
+        CompletableFuture<HoldDTO> captured;
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            holdService.consume(hold.id(), 1L, new BigDecimal("3.00"));
+            assertEquals(new BigDecimal("7.00"), holdService.get(hold.id(), 1L).remaining());
+
+            captured = CompletableFuture.supplyAsync(() -> holdService.capture(hold.id(), 1L));
+            Thread.sleep(100);
+            assertFalse(captured.isDone());
+            verify(userService, never()).creditBalance(any(), any());
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(new BigDecimal("10.00"), captured.get(5, TimeUnit.SECONDS).remaining());
+        verify(userService).creditBalance(1L, new BigDecimal("10.00"));
+    }
+
+    @Test
+    void testCapture_TimesOutWhileChargePending() {
+        ReflectionTestUtils.setField(holdService, "captureWaitMillis", 10L);
+        holdService.start();
+        HoldDTO hold = holdService.place(1L, new BigDecimal("10.00"), 60L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            holdService.consume(hold.id(), 1L, new BigDecimal("3.00"));
+
+            assertThrows(IllegalArgumentException.class, () -> holdService.capture(hold.id(), 1L));
+            holdService.consume(hold.id(), 1L, new BigDecimal("1.00"));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(new BigDecimal("6.00"), holdService.capture(hold.id(), 1L).remaining());
+        verify(userService).creditBalance(1L, new BigDecimal("6.00"));
+    }
+
+    @Test
+    void testPlace_RejectsInvalidRequests() {
+        holdService.start();
+
+        assertThrows(IllegalArgumentException.class, () -> holdService.place(1L, BigDecimal.ZERO, null));
+        assertThrows(IllegalArgumentException.class, () -> holdService.place(1L, BigDecimal.TEN, 7200L));
+        verify(userService, never()).debitBalance(any(), any());
+    }
+
+    @Test
+    void testTick_SettlesExpiredHolds() throws InterruptedException {
+        ReflectionTestUtils.setField(holdService, "tickMillis", 50L);
+        holdService.start();
+        HoldDTO hold = holdService.place(1L, new BigDecimal("10.00"), 1L);
+        holdService.consume(hold.id(), 1L, new BigDecimal("4.00"));
+
+        holdService.tick();
+        verify(userService, never()).creditBalance(any(), any());
+        verify(holdRepository).updateConsumed(hold.id(), new BigDecimal("4.00"));
+
+        Thread.sleep(1100);
+        holdService.tick();
+
+        verify(userService).creditBalance(1L, new BigDecimal("6.00"));
+        assertEquals(0, holdService.openHolds());
+    }
+
+    @Test
+    void testStart_ReleasesHoldsOwnedByThisInstance() {
+        BalanceHold abandoned = storedHold("h1", "node-a", LocalDateTime.now().plusMinutes(5));
+        when(holdRepository.findByStatusAndOwner(BalanceHold.Status.OPEN, "node-a")).thenReturn(List.of(abandoned));
+
+        holdService.start();
+
+        verify(holdRepository).settle("h1", BalanceHold.Status.RELEASED, new BigDecimal("4.00"));
+        verify(userService).creditBalance(1L, new BigDecimal("6.00"));
+    }
+
+    @Test
+    void testReleaseAbandoned_OnlyExpiredHoldsAndOnlyOnce() {
+        holdService.start();
+        BalanceHold first = storedHold("h1", "node-b", LocalDateTime.now().minusMinutes(5));
+        BalanceHold second = storedHold("h2", "node-b", LocalDateTime.now().minusMinutes(5));
+        when(holdRepository.findByStatusAndExpiresAtBefore(eq(BalanceHold.Status.OPEN), any()))
+                .thenReturn(List.of(first, second));
+        // Another instance settles the second hold first
+        when(holdRepository.settle("h2", BalanceHold.Status.RELEASED, new BigDecimal("4.00"))).thenReturn(0);
+
+        holdService.releaseAbandoned();
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(holdRepository, atLeastOnce()).findByStatusAndExpiresAtBefore(eq(BalanceHold.Status.OPEN), cutoff.capture());
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusSeconds(59)));
+        verify(userService, times(1)).creditBalance(1L, new BigDecimal("6.00"));
+    }
+
+    @Test
+    void testStart_ForgivesConsumptionNotWrittenBeforeCrash() {
+        holdService.start();
+        HoldDTO hold = holdService.place(1L, new BigDecimal("10.00"), 60L);
+        holdService.consume(hold.id(), 1L, new BigDecimal("4.00"));
+        holdService.tick();
+        // Committed after the last tick, then the instance crashes
+        holdService.consume(hold.id(), 1L, new BigDecimal("2.00"));
+
+        ArgumentCaptor<BigDecimal> written = ArgumentCaptor.forClass(BigDecimal.class);
+        verify(holdRepository).updateConsumed(eq(hold.id()), written.capture());
+        BalanceHold row = storedHold(hold.id(), "node-a", hold.expiresAt());
+        row.setConsumed(written.getValue());
+        when(holdRepository.findByStatusAndOwner(BalanceHold.Status.OPEN, "node-a")).thenReturn(List.of(row));
+
+        HoldService restarted = new HoldService();
+        ReflectionTestUtils.setField(restarted, "userService", userService);
+        ReflectionTestUtils.setField(restarted, "holdRepository", holdRepository);
+        ReflectionTestUtils.setField(restarted, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(restarted, "instanceId", "node-a");
+        restarted.start();
+
+        // The 2.00 charged after the last write is credited back with the rest
+        verify(holdRepository).settle(hold.id(), BalanceHold.Status.RELEASED, new BigDecimal("4.00"));
+        verify(userService).creditBalance(1L, new BigDecimal("6.00"));
+    }
+
+    private static BalanceHold storedHold(String id, String owner, LocalDateTime expiresAt) {
+        BalanceHold hold = new BalanceHold();
+        hold.setId(id);
+        hold.setUserId(1L);
+        hold.setAmount(new BigDecimal("10.00"));
+        hold.setConsumed(new BigDecimal("4.00"));
+        hold.setStatus(BalanceHold.Status.OPEN);
+        hold.setOwner(owner);
+        hold.setExpiresAt(expiresAt);
+        return hold;
+    }
+}
@@ -0,0 +1,228 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.entity.IdempotencyRecord;
+import com.challenge.operations.exception.IdempotencyConflictException;
+import com.challenge.operations.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testExecute_ReplaysResponseForSameKey() {
+        AtomicInteger calls = new AtomicInteger();
+        String fingerprint = idempotencyService.fingerprint("1 + 1");
+
+        BigDecimal first = idempotencyService.execute("execute:1", "k1", fingerprint, BigDecimal.class,
+                () -> BigDecimal.valueOf(calls.incrementAndGet()));
+        BigDecimal second = idempotencyService.execute("execute:1", "k1", fingerprint, BigDecimal.class,
+                () -> BigDecimal.valueOf(calls.incrementAndGet()));
+
+        assertEquals(BigDecimal.ONE, first);
+        assertEquals(BigDecimal.ONE, second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testExecute_KeysAreScopedAndOptional() {
+        AtomicInteger calls = new AtomicInteger();
+        String fingerprint = idempotencyService.fingerprint();
+
+        idempotencyService.execute("random-string:1", "k1", fingerprint, Integer.class, calls::incrementAndGet);
+        idempotencyService.execute("random-string:2", "k1", fingerprint, Integer.class, calls::incrementAndGet);
+        idempotencyService.execute("random-string:1", null, fingerprint, Integer.class, calls::incrementAndGet);
+        idempotencyService.execute("random-string:1", null, fingerprint, Integer.class, calls::incrementAndGet);
+
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void testExecute_RejectsKeyReusedWithOtherParameters() {
+        idempotencyService.execute("add-balance:1", "k1", idempotencyService.fingerprint("10"), String.class, () -> "ok");
+
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute("add-balance:1", "k1",
+                idempotencyService.fingerprint("20"), String.class, () -> "ok"));
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute("add-balance:1", " ",
+                idempotencyService.fingerprint("10"), String.class, () -> "ok"));
+    }
+
+    @Test
+    void testExecute_FailureIsNotRemembered() {
+        String fingerprint = idempotencyService.fingerprint("1 / 0");
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("execute:1", "k1", fingerprint,
+                String.class, () -> {
+                    throw new IllegalStateException("boom");
+                }));
+
+        assertEquals("ok", idempotencyService.execute("execute:1", "k1", fingerprint, String.class, () -> "ok"));
+    }
+
+    @Test
+    void testExecute_CoalescesConcurrentDuplicates() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String fingerprint = idempotencyService.fingerprint();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> idempotencyService.execute("execute:1", "k1",
+                fingerprint, String.class, () -> {
+                    calls.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "done";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> duplicate = CompletableFuture.supplyAsync(() -> idempotencyService.execute("execute:1", "k1",
+                fingerprint, String.class, () -> "again"));
+        release.countDown();
+
+        assertEquals("done", first.get(5, TimeUnit.SECONDS));
+        assertEquals("done", duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testExecute_FullMapKeepsPendingEntries() throws Exception {
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 2);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        String fingerprint = idempotencyService.fingerprint();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CompletableFuture<?>[] pending = new CompletableFuture<?>[3];
+        for (int i = 0; i < pending.length; i++) {
+            String key = "k" + i;
+            pending[i] = CompletableFuture.supplyAsync(() -> idempotencyService.execute("execute:1", key,
+                    fingerprint, String.class, () -> {
+                        calls.incrementAndGet();
+                        started.countDown();
+                        await(release);
+                        return "done";
+                    }), executor);
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(3, idempotencyService.size());
+
+        CompletableFuture<String> duplicate = CompletableFuture.supplyAsync(() -> idempotencyService.execute("execute:1", "k0",
+                fingerprint, String.class, () -> "again"), executor);
+        // The duplicate found the pending entry and waits for it instead of running again
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone());
+        release.countDown();
+
+        assertEquals("done", duplicate.get(5, TimeUnit.SECONDS));
+        CompletableFuture.allOf(pending).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertEquals(3, calls.get());
+
+        // Once completed, the oldest entries are dropped to make room again
+        idempotencyService.execute("execute:1", "k3", fingerprint, String.class, () -> "new");
+        assertEquals(2, idempotencyService.size());
+    }
+
+    @Test
+    void testExecute_DuplicateTimesOutWhileOriginalRuns() throws Exception {
+        ReflectionTestUtils.setField(idempotencyService, "waitTimeoutMillis", 50L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String fingerprint = idempotencyService.fingerprint();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> idempotencyService.execute("execute:1", "k1",
+                fingerprint, String.class, () -> {
+                    started.countDown();
+                    await(release);
+                    return "done";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute("execute:1", "k1",
+                fingerprint, String.class, () -> "again"));
+        release.countDown();
+        assertEquals("done", first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testExecute_ExpiredKeyRunsAgain() throws Exception {
+        ReflectionTestUtils.setField(idempotencyService, "ttlMillis", 1L);
+        AtomicInteger calls = new AtomicInteger();
+        String fingerprint = idempotencyService.fingerprint();
+
+        idempotencyService.execute("execute:1", "k1", fingerprint, Integer.class, calls::incrementAndGet);
+        Thread.sleep(5);
+        idempotencyService.execute("execute:1", "k1", fingerprint, Integer.class, calls::incrementAndGet);
+
+        assertEquals(2, calls.get());
+        assertEquals(1, idempotencyService.size());
+    }
+
+    @Test
+    void testExecute_PersistedResponseSurvivesRestart() {
+        ReflectionTestUtils.setField(idempotencyService, "persist", true);
+        String fingerprint = idempotencyService.fingerprint("2 * 3");
+        when(recordRepository.findById(anyString())).thenReturn(Optional.empty());
+
+        idempotencyService.execute("execute:1", "k1", fingerprint, BigDecimal.class, () -> new BigDecimal("6.0"));
+
+        ArgumentCaptor<IdempotencyRecord> saved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(recordRepository).save(saved.capture());
+        assertEquals("execute:1:k1", saved.getValue().getId());
+
+        // A new instance has an empty memory and finds the stored response
+        IdempotencyService restarted = new IdempotencyService();
+        ReflectionTestUtils.setField(restarted, "recordRepository", recordRepository);
+        ReflectionTestUtils.setField(restarted, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(restarted, "persist", true);
+        saved.getValue().setCreatedAt(LocalDateTime.now());
+        when(recordRepository.findById("execute:1:k1")).thenReturn(Optional.of(saved.getValue()));
+
+        BigDecimal replayed = restarted.execute("execute:1", "k1", fingerprint, BigDecimal.class, () -> BigDecimal.TEN);
+
+        assertEquals(new BigDecimal("6.0"), replayed);
+        verify(recordRepository, times(1)).save(any());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
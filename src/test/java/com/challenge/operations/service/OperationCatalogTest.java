@@ -0,0 +1,66 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.entity.Operation;
+import com.challenge.operations.entity.OperationType;
+import com.challenge.operations.repository.OperationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OperationCatalogTest {
+
+    @Mock
+    private OperationRepository operationRepository;
+
+    @InjectMocks
+    private OperationCatalog operationCatalog;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private Operation operation(String type, String cost) {
+        Operation operation = new Operation();
+        operation.setType(type);
+        operation.setCost(new BigDecimal(cost));
+        return operation;
+    }
+
+    @Test
+    void testFind_LoadsCatalogOnce() {
+        when(operationRepository.findAll()).thenReturn(List.of(operation("add", "5.00"), operation("sqrt", "15.00")));
+
+        Optional<Operation> add = operationCatalog.find(OperationType.ADD);
+        Optional<Operation> sqrt = operationCatalog.find(OperationType.SQRT);
+
+        assertTrue(add.isPresent());
+        assertEquals(new BigDecimal("15.00"), sqrt.get().getCost());
+        assertTrue(operationCatalog.find(OperationType.DIVIDE).isEmpty());
+        verify(operationRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testRefresh_ReplacesSnapshot() {
+        when(operationRepository.findAll())
+                .thenReturn(List.of(operation("add", "5.00")))
+                .thenReturn(List.of(operation("add", "7.00"), operation("random-string", "1.50")));
+
+        assertEquals(new BigDecimal("5.00"), operationCatalog.find(OperationType.ADD).get().getCost());
+
+        int loaded = operationCatalog.refresh();
+
+        assertEquals(2, loaded);
+        assertEquals(new BigDecimal("7.00"), operationCatalog.find(OperationType.ADD).get().getCost());
+        assertTrue(operationCatalog.find(OperationType.RANDOM_STRING).isPresent());
+    }
+}
@@ -1,17 +1,25 @@
 package com.challenge.operations.service;
 
+import com.challenge.operations.dto.BatchResultDTO;
 import com.challenge.operations.dto.OperationDTO;
 import com.challenge.operations.entity.Operation;
+import com.challenge.operations.entity.OperationType;
 import com.challenge.operations.entity.User;
 import com.challenge.operations.exception.InsufficientBalanceException;
-import com.challenge.operations.repository.OperationRepository;
+import com.challenge.operations.exception.OperationNotFoundException;
+import com.challenge.operations.util.ExpressionCache;
+import com.challenge.operations.util.NumericMode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,7 +34,13 @@ class OperationServiceTest {
     private RecordService recordService;
 
     @Mock
-    private OperationRepository operationRepository;
+    private OperationCatalog operationCatalog;
+
+    @Mock
+    private HoldService holdService;
+
+    @Spy
+    private ExpressionCache expressionCache = new ExpressionCache(16, 4096);
 
     @InjectMocks
     private OperationService operationService;
@@ -56,18 +70,124 @@ class OperationServiceTest {
         operationDTO.setUserId(userId);
         operationDTO.setExpression(expression);
 
-        when(userService.findById(userId)).thenReturn(user);
-        when(operationRepository.findByType("add")).thenReturn(Optional.of(operation));
+        when(operationCatalog.find(OperationType.ADD)).thenReturn(Optional.of(operation));
+        when(userService.debitBalance(userId, operationCost)).thenReturn(new BigDecimal("95.00"));
+        when(userService.getReference(userId)).thenReturn(user);
 
         BigDecimal result = operationService.executeOperation(operationDTO);
 
         assertEquals(expectedResult.setScale(2), result.setScale(2));
-        assertEquals(new BigDecimal("95.00").setScale(2), user.getBalance().setScale(2));
 
-        verify(userService, times(1)).findById(userId);
-        verify(operationRepository, times(1)).findByType("add");
-        verify(userService, times(1)).updateUser(user);
-        verify(recordService, times(1)).save(any(), eq(user), eq(result), eq(new BigDecimal("95.00")), anyString());
+        verify(operationCatalog, times(1)).find(OperationType.ADD);
+        verify(userService, times(1)).debitBalance(userId, operationCost);
+        verify(userService, never()).updateUser(any());
+        verify(recordService, times(1)).save(any(), eq(user), eq(result), eq(new BigDecimal("95.00")), anyString(), any());
+    }
+
+    @Test
+    void testExecuteOperation_DecimalMode() {
+        Long userId = 1L;
+
+        User user = new User();
+        user.setId(userId);
+        user.setBalance(new BigDecimal("100.00"));
+
+        Operation operation = new Operation();
+        operation.setType("add");
+        operation.setCost(new BigDecimal("5.00"));
+
+        OperationDTO operationDTO = new OperationDTO();
+        operationDTO.setUserId(userId);
+        operationDTO.setExpression("0.1 + 0.2");
+        operationDTO.setNumericMode(NumericMode.DECIMAL);
+
+        when(operationCatalog.find(OperationType.ADD)).thenReturn(Optional.of(operation));
+        when(userService.debitBalance(userId, new BigDecimal("5.00"))).thenReturn(new BigDecimal("95.00"));
+        when(userService.getReference(userId)).thenReturn(user);
+
+        BigDecimal result = operationService.executeOperation(operationDTO);
+
+        assertEquals(new BigDecimal("0.3"), result);
+    }
+
+    @Test
+    void testExecuteOperation_PrecisionOutOfRange() {
+        OperationDTO operationDTO = new OperationDTO();
+        operationDTO.setUserId(1L);
+        operationDTO.setExpression("1 / 3");
+        operationDTO.setNumericMode(NumericMode.DECIMAL);
+        operationDTO.setPrecision(0);
+
+        assertThrows(IllegalArgumentException.class, () -> operationService.executeOperation(operationDTO));
+        verify(userService, never()).debitBalance(any(), any());
+        verify(recordService, never()).save(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testExecuteOperation_NegativeNumberIsNotSubtraction() {
+        Long userId = 1L;
+
+        User user = new User();
+        user.setId(userId);
+        user.setBalance(new BigDecimal("100.00"));
+
+        Operation operation = new Operation();
+        operation.setType("add");
+        operation.setCost(new BigDecimal("5.00"));
+
+        OperationDTO operationDTO = new OperationDTO();
+        operationDTO.setUserId(userId);
+        operationDTO.setExpression("-3 + 2");
+
+        when(operationCatalog.find(OperationType.ADD)).thenReturn(Optional.of(operation));
+        when(userService.debitBalance(userId, new BigDecimal("5.00"))).thenReturn(new BigDecimal("95.00"));
+        when(userService.getReference(userId)).thenReturn(user);
+
+        BigDecimal result = operationService.executeOperation(operationDTO);
+
+        assertEquals(0, new BigDecimal("-1").compareTo(result));
+        verify(operationCatalog, never()).find(OperationType.SUBTRACT);
+    }
+
+    @Test
+    void testExecuteOperation_SumBilling() {
+        Long userId = 1L;
+        ReflectionTestUtils.setField(operationService, "billingMode", OperationService.BillingMode.SUM);
+
+        User user = new User();
+        user.setId(userId);
+        user.setBalance(new BigDecimal("100.00"));
+
+        Operation add = new Operation();
+        add.setType("add");
+        add.setCost(new BigDecimal("5.00"));
+        Operation sqrt = new Operation();
+        sqrt.setType("sqrt");
+        sqrt.setCost(new BigDecimal("15.00"));
+
+        OperationDTO operationDTO = new OperationDTO();
+        operationDTO.setUserId(userId);
+        operationDTO.setExpression("sqrt(16) + 1");
+
+        when(operationCatalog.find(OperationType.ADD)).thenReturn(Optional.of(add));
+        when(operationCatalog.find(OperationType.SQRT)).thenReturn(Optional.of(sqrt));
+        when(userService.debitBalance(userId, new BigDecimal("20.00"))).thenReturn(new BigDecimal("80.00"));
+        when(userService.getReference(userId)).thenReturn(user);
+
+        operationService.executeOperation(operationDTO);
+
+        verify(userService, times(1)).debitBalance(userId, new BigDecimal("20.00"));
+        verify(recordService, times(1)).save(eq(sqrt), eq(user), any(), eq(new BigDecimal("80.00")), anyString(), eq(new BigDecimal("20.00")));
+    }
+
+    @Test
+    void testExecuteOperation_NoOperator() {
+        OperationDTO operationDTO = new OperationDTO();
+        operationDTO.setUserId(1L);
+        operationDTO.setExpression("42");
+
+        assertThrows(OperationNotFoundException.class, () -> operationService.executeOperation(operationDTO));
+        verify(operationCatalog, never()).find(any());
     }
 
     @Test
@@ -89,16 +209,18 @@ class OperationServiceTest {
         operationDTO.setUserId(userId);
         operationDTO.setExpression(expression);
 
-        when(userService.findById(userId)).thenReturn(user);
-        when(operationRepository.findByType("subtract")).thenReturn(Optional.of(operation));
+        when(operationCatalog.find(OperationType.SUBTRACT)).thenReturn(Optional.of(operation));
+        when(userService.debitBalance(userId, operationCost))
+                .thenThrow(new InsufficientBalanceException("Insufficient balance to carry out the operation."));
 
         InsufficientBalanceException exception = assertThrows(InsufficientBalanceException.class, () -> {
             operationService.executeOperation(operationDTO);
         });
 
         assertEquals("Insufficient balance to carry out the operation.", exception.getMessage());
-        verify(userService, times(1)).findById(userId);
-        verify(operationRepository, times(1)).findByType("subtract");
+        verify(userService, times(1)).debitBalance(userId, operationCost);
+        verify(operationCatalog, times(1)).find(OperationType.SUBTRACT);
+        verify(recordService, never()).save(any(), any(), any(), any(), any(), any());
     }
 
 
@@ -117,18 +239,113 @@ class OperationServiceTest {
         operation.setType("random-string");
         operation.setCost(operationCost);
 
-        when(userService.findById(userId)).thenReturn(user);
-        when(operationRepository.findByType("random-string")).thenReturn(Optional.of(operation));
+        when(operationCatalog.find(OperationType.RANDOM_STRING)).thenReturn(Optional.of(operation));
+        when(userService.debitBalance(userId, operationCost)).thenReturn(new BigDecimal("95.00"));
+        when(userService.getReference(userId)).thenReturn(user);
 
         String result = operationService.generateRandomString(userId);
 
         assertNotNull(result);
-        assertEquals(new BigDecimal("95.00"), user.getBalance());
 
-        verify(userService, times(1)).findById(userId);
-        verify(operationRepository, times(1)).findByType("random-string");
-        verify(userService, times(1)).updateUser(user);
+        verify(operationCatalog, times(1)).find(OperationType.RANDOM_STRING);
+        verify(userService, times(1)).debitBalance(userId, operationCost);
         verify(recordService, times(1)).save(any(), eq(user), eq(BigDecimal.ZERO), eq(new BigDecimal("95.00")), anyString());
     }
 
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExecuteBatch_ChargesSuccessfulExpressionsOnce() {
+        Long userId = 1L;
+        User user = new User();
+        user.setId(userId);
+
+        Operation add = new Operation();
+        add.setType("add");
+        add.setCost(new BigDecimal("5.00"));
+        Operation multiply = new Operation();
+        multiply.setType("multiply");
+        multiply.setCost(new BigDecimal("3.00"));
+
+        when(operationCatalog.find(OperationType.ADD)).thenReturn(Optional.of(add));
+        when(operationCatalog.find(OperationType.MULTIPLY)).thenReturn(Optional.of(multiply));
+        when(userService.debitBalance(userId, new BigDecimal("8.00"))).thenReturn(new BigDecimal("92.00"));
+        when(userService.getReference(userId)).thenReturn(user);
+
+        BatchResultDTO result = operationService.executeBatch(userId,
+                List.of(expression("1 + 1"), expression("1 / 0"), expression("2 * 3")));
+
+        assertEquals(2, result.succeeded());
+        assertEquals(1, result.failed());
+        assertEquals(new BigDecimal("8.00"), result.totalCost());
+        assertEquals(new BigDecimal("92.00"), result.balance());
+        assertEquals("Division by zero is not allowed.", result.results().get(1).error());
+        assertEquals(new BigDecimal("3.00"), result.results().get(2).cost());
+
+        ArgumentCaptor<List<RecordService.OperationOutcome>> records = ArgumentCaptor.forClass(List.class);
+        verify(userService, times(1)).debitBalance(userId, new BigDecimal("8.00"));
+        verify(recordService, times(1)).saveAll(eq(user), records.capture());
+        assertEquals(List.of(new BigDecimal("95.00"), new BigDecimal("92.00")),
+                records.getValue().stream().map(RecordService.OperationOutcome::userBalance).toList());
+    }
+
+    @Test
+    void testExecuteBatch_NothingChargedWhenAllFail() {
+        BatchResultDTO result = operationService.executeBatch(1L, List.of(expression("1 +"), expression("42")));
+
+        assertEquals(0, result.succeeded());
+        assertNull(result.balance());
+        verify(userService, never()).debitBalance(any(), any());
+        verify(recordService, never()).saveAll(any(), any());
+    }
+
+    @Test
+    void testExecuteBatch_RejectsEmptyBatch() {
+        assertThrows(IllegalArgumentException.class, () -> operationService.executeBatch(1L, List.of()));
+    }
+
+    @Test
+    void testExecuteOnHold_ChargesHoldInsteadOfBalance() {
+        Long userId = 1L;
+        User user = new User();
+        user.setId(userId);
+
+        Operation operation = new Operation();
+        operation.setType("add");
+        operation.setCost(new BigDecimal("5.00"));
+
+        when(operationCatalog.find(OperationType.ADD)).thenReturn(Optional.of(operation));
+        when(holdService.consume("h1", userId, new BigDecimal("5.00"))).thenReturn(new BigDecimal("95.00"));
+        when(userService.getReference(userId)).thenReturn(user);
+
+        OperationDTO operationDTO = expression("2 + 2");
+        operationDTO.setUserId(userId);
+        BigDecimal result = operationService.executeOnHold("h1", operationDTO);
+
+        assertEquals(0, new BigDecimal("4").compareTo(result));
+        verify(userService, never()).debitBalance(any(), any());
+        verify(recordService).save(eq(operation), eq(user), eq(result), eq(new BigDecimal("95.00")), anyString(),
+                eq(new BigDecimal("5.00")));
+    }
+
+    @Test
+    void testExecuteBatchOnHold_ChargesTotalToHold() {
+        Operation operation = new Operation();
+        operation.setType("add");
+        operation.setCost(new BigDecimal("5.00"));
+        when(operationCatalog.find(OperationType.ADD)).thenReturn(Optional.of(operation));
+        when(holdService.consume("h1", 1L, new BigDecimal("10.00"))).thenReturn(new BigDecimal("90.00"));
+
+        BatchResultDTO result = operationService.executeBatchOnHold("h1", 1L,
+                List.of(expression("1 + 1"), expression("2 + 2")));
+
+        assertEquals(new BigDecimal("90.00"), result.balance());
+        verify(userService, never()).debitBalance(any(), any());
+    }
+
+    private static OperationDTO expression(String expression) {
+        OperationDTO operationDTO = new OperationDTO();
+        operationDTO.setExpression(expression);
+        return operationDTO;
+    }
 }
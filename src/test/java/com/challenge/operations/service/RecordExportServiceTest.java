@@ -0,0 +1,77 @@
+package com.challenge.operations.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RecordExportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @InjectMocks
+    private RecordExportService recordExportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(7L);
+        when(rs.getString(2)).thenReturn("random-string");
+        when(rs.getBigDecimal(3)).thenReturn(new BigDecimal("5.00"));
+        when(rs.getBigDecimal(4)).thenReturn(new BigDecimal("95.00"));
+        when(rs.getString(5)).thenReturn("a,\"b\"");
+        when(rs.getTimestamp(6)).thenReturn(Timestamp.valueOf(LocalDateTime.of(2024, 1, 2, 3, 4, 5)));
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            return null;
+        }).doNothing().when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void testExport_Ndjson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        recordExportService.export(1L, RecordExportService.Format.NDJSON, out);
+
+        assertEquals("{\"id\":7,\"operationType\":\"random-string\",\"amount\":5.00,\"userBalance\":95.00,"
+                + "\"operationResponse\":\"a,\\\"b\\\"\",\"date\":\"2024-01-02T03:04:05\"}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExport_Csv() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        recordExportService.export(1L, RecordExportService.Format.CSV, out);
+
+        assertEquals("id,operation_type,amount,user_balance,operation_response,date\n"
+                + "7,random-string,5.00,95.00,\"a,\"\"b\"\"\",2024-01-02T03:04:05\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -1,18 +1,28 @@
 package com.challenge.operations.service;
 
+import com.challenge.operations.dto.RecordDeleteDTO;
+import com.challenge.operations.dto.RecordPageDTO;
+import com.challenge.operations.dto.RecordView;
 import com.challenge.operations.entity.Operation;
+import com.challenge.operations.entity.OperationType;
 import com.challenge.operations.entity.Record;
 import com.challenge.operations.entity.User;
+import com.challenge.operations.repository.RecordArchiveRepository;
 import com.challenge.operations.repository.RecordRepository;
+import com.challenge.operations.util.RecordCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +32,21 @@ class RecordServiceTest {
     @Mock
     private RecordRepository recordRepository;
 
+    @Mock
+    private RecordWriteBehind recordWriteBehind;
+
+    @Mock
+    private OperationCatalog operationCatalog;
+
+    @Mock
+    private RecordArchiveRepository recordArchiveRepository;
+
+    @Mock
+    private RecordArchiver recordArchiver;
+
+    @Mock
+    private UsageService usageService;
+
     @InjectMocks
     private RecordService recordService;
 
@@ -41,6 +66,39 @@ class RecordServiceTest {
         recordService.save(operation, user, amount, userBalance, response);
 
         verify(recordRepository, times(1)).save(any(Record.class));
+        verify(usageService, times(1)).recordUsage(any(), any(), any(), isNull());
+    }
+
+    @Test
+    void testSave_WriteBehind() {
+        Operation operation = new Operation();
+        User user = new User();
+
+        when(recordWriteBehind.isEnabled()).thenReturn(true);
+
+        recordService.save(operation, user, BigDecimal.TEN, new BigDecimal("100.00"), "Operation success");
+
+        verify(recordWriteBehind, times(1)).submit(any(Record.class));
+        verify(recordRepository, never()).save(any());
+    }
+
+    @Test
+    void testSaveAll_AggregatesUsagePerType() {
+        User user = new User();
+        user.setId(1L);
+        Operation add = new Operation();
+        add.setType("add");
+        Operation sqrt = new Operation();
+        sqrt.setType("sqrt");
+
+        recordService.saveAll(user, List.of(
+                new RecordService.OperationOutcome(add, BigDecimal.ONE, new BigDecimal("95"), "Result: 1", new BigDecimal("5")),
+                new RecordService.OperationOutcome(sqrt, BigDecimal.TEN, new BigDecimal("80"), "Result: 10", new BigDecimal("15")),
+                new RecordService.OperationOutcome(add, BigDecimal.ONE, new BigDecimal("75"), "Result: 1", new BigDecimal("5"))));
+
+        verify(recordRepository, times(1)).saveAll(argThat((List<Record> records) -> records.size() == 3));
+        verify(usageService).recordUsage(eq(1L), eq("add"), any(), eq(2L), eq(new BigDecimal("10")));
+        verify(usageService).recordUsage(eq(1L), eq("sqrt"), any(), eq(1L), eq(new BigDecimal("15")));
     }
 
     @Test
@@ -76,33 +134,208 @@ class RecordServiceTest {
     }
 
     @Test
-    void testListRecordsByUser_Success() {
+    void testListRecordsPage_Success() {
         Long userId = 1L;
+        when(recordRepository.findPageDescending(eq(userId), any(), any(), eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(view(1L, LocalDateTime.of(2024, 6, 1, 12, 0))));
 
-        List<Record> records = new ArrayList<>();
-        Record record = new Record();
-        records.add(record);
-        when(recordRepository.findByUserId(userId)).thenReturn(records);
+        RecordPageDTO<RecordView> page = recordService.listRecordsPage(userId, null, null, null, null, null, Sort.Direction.DESC);
 
-        List<Record> result = recordService.listRecordsByUser(userId);
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testListRecordsPage_Empty() {
+        Long userId = 1L;
+        when(recordRepository.findPageDescending(eq(userId), any(), any(), eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        RecordPageDTO<RecordView> page = recordService.listRecordsPage(userId, null, null, null, null, null, Sort.Direction.DESC);
+
+        assertTrue(page.items().isEmpty());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testListRecordsPage_ReturnsCursorWhenMoreRecordsExist() {
+        Long userId = 1L;
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<RecordView> records = List.of(view(3L, now), view(2L, now), view(1L, now.minusMinutes(1)));
+
+        when(recordRepository.findPageDescending(eq(userId), any(), any(), eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(records);
+
+        RecordPageDTO<RecordView> page = recordService.listRecordsPage(userId, null, 2, null, null, null, Sort.Direction.DESC);
 
-        assertNotNull(result);
-        assertEquals(1, result.size());
+        assertEquals(2, page.items().size());
+        RecordCursor cursor = RecordCursor.decode(page.nextCursor());
+        assertEquals(now, cursor.date());
+        assertEquals(2L, cursor.id());
 
-        verify(recordRepository, times(1)).findByUserId(userId);
+        verify(recordRepository).findPageDescending(eq(userId), any(), any(), eq(Long.MIN_VALUE),
+                argThat((Pageable pageable) -> pageable.getPageSize() == 3));
     }
 
     @Test
-    void testListRecordsByUser_Empty() {
+    void testListRecordsPage_SeeksFromCursorWithinDateRange() {
         Long userId = 1L;
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 7, 1, 0, 0);
+        LocalDateTime date = LocalDateTime.of(2024, 6, 1, 12, 0);
 
-        when(recordRepository.findByUserId(userId)).thenReturn(new ArrayList<>());
+        recordService.listRecordsPage(userId, null, 2, null, from, to, Sort.Direction.DESC);
+        recordService.listRecordsPage(userId, new RecordCursor(date, 4L).encode(), 2, null, from, to, Sort.Direction.DESC);
+        // A cursor past the end of the range starts the page at the end of the range
+        recordService.listRecordsPage(userId, new RecordCursor(to.plusDays(1), 9L).encode(), 2, null, from, to,
+                Sort.Direction.DESC);
 
-        List<Record> result = recordService.listRecordsByUser(userId);
+        verify(recordRepository, times(2)).findPageDescending(eq(userId), eq(from), eq(to), eq(Long.MIN_VALUE), any(Pageable.class));
+        verify(recordRepository).findPageDescending(eq(userId), eq(from), eq(date), eq(4L), any(Pageable.class));
+    }
+
+    @Test
+    void testListRecordsPage_LastPageAscendingWithFilters() {
+        Long userId = 1L;
+        LocalDateTime date = LocalDateTime.of(2024, 1, 1, 12, 0);
+        String cursor = new RecordCursor(date, 7L).encode();
+        Operation operation = new Operation();
+        operation.setId(4L);
+
+        when(operationCatalog.find(OperationType.SQRT)).thenReturn(Optional.of(operation));
+        when(recordRepository.findPageAscendingByOperation(eq(userId), eq(4L), any(), eq(date), eq(7L), any(Pageable.class)))
+                .thenReturn(List.of(view(8L, date)));
 
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
+        RecordPageDTO<RecordView> page = recordService.listRecordsPage(userId, cursor, 10, "sqrt", null, null, Sort.Direction.ASC);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testListRecordsPage_InvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> recordService.listRecordsPage(1L, null, 0, null, null, null, Sort.Direction.DESC));
+        assertThrows(IllegalArgumentException.class,
+                () -> recordService.listRecordsPage(1L, null, 101, null, null, null, Sort.Direction.DESC));
+        assertThrows(IllegalArgumentException.class,
+                () -> recordService.listRecordsPage(1L, null, null, "modulo", null, null, Sort.Direction.DESC));
+        assertThrows(IllegalArgumentException.class,
+                () -> recordService.listRecordsPage(1L, "not-a-cursor", null, null, null, null, Sort.Direction.DESC));
+
+        verifyNoInteractions(recordRepository);
+    }
+
+    @Test
+    void testListRecordsPage_MergesArchiveWhenHotRecordsRunOut() {
+        Long userId = 1L;
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        LocalDateTime archivedDate = now.minusDays(100);
+
+        when(recordArchiver.newestArchivedDate()).thenReturn(Optional.of(archivedDate));
+        when(recordRepository.findPageDescending(eq(userId), any(), any(), eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(view(9L, now)));
+        when(recordArchiveRepository.findPageDescending(eq(userId), any(), any(), eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(view(2L, archivedDate), view(1L, archivedDate.minusDays(1))));
+
+        RecordPageDTO<RecordView> page = recordService.listRecordsPage(userId, null, 2, null, null, null, Sort.Direction.DESC);
+
+        assertEquals(List.of(9L, 2L), page.items().stream().map(RecordView::id).toList());
+        assertEquals(2L, RecordCursor.decode(page.nextCursor()).id());
+    }
+
+    @Test
+    void testListRecordsPage_SkipsArchiveForRecentPages() {
+        Long userId = 1L;
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+        when(recordArchiver.newestArchivedDate()).thenReturn(Optional.of(now.minusDays(100)));
+        when(recordRepository.findPageDescending(eq(userId), any(), any(), eq(Long.MIN_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(view(3L, now), view(2L, now), view(1L, now)));
+
+        recordService.listRecordsPage(userId, null, 2, null, null, null, Sort.Direction.DESC);
+
+        verifyNoInteractions(recordArchiveRepository);
+    }
+
+    @Test
+    void testDeleteRecordById_Success() {
+        when(recordRepository.deleteOwned(1L, List.of(10L))).thenReturn(1);
+
+        recordService.deleteRecordById(10L, 1L, false);
+
+        verify(recordRepository, never()).findOwnerIdById(any());
+    }
+
+    @Test
+    void testDeleteRecordById_NotOwner() {
+        when(recordRepository.softDeleteOwned(1L, List.of(10L))).thenReturn(0);
+        when(recordRepository.findOwnerIdById(10L)).thenReturn(Optional.of(2L));
+
+        assertThrows(SecurityException.class, () -> recordService.deleteRecordById(10L, 1L, true));
+    }
+
+    @Test
+    void testDeleteRecordById_NotFound() {
+        when(recordRepository.deleteOwned(1L, List.of(10L))).thenReturn(0);
+        when(recordRepository.findOwnerIdById(10L)).thenReturn(Optional.empty());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> recordService.deleteRecordById(10L, 1L, false));
+
+        assertEquals("Record not found.", exception.getMessage());
+    }
+
+    @Test
+    void testDeleteRecordById_AlreadySoftDeleted() {
+        when(recordRepository.softDeleteOwned(1L, List.of(10L))).thenReturn(1).thenReturn(0);
+        when(recordRepository.deleteOwned(1L, List.of(10L))).thenReturn(0);
+        when(recordRepository.findOwnerIdById(10L)).thenReturn(Optional.empty());
+        when(recordArchiveRepository.findOwnerIdById(10L)).thenReturn(Optional.empty());
+
+        recordService.deleteRecordById(10L, 1L, true);
+
+        assertThrows(IllegalArgumentException.class, () -> recordService.deleteRecordById(10L, 1L, true));
+        assertThrows(IllegalArgumentException.class, () -> recordService.deleteRecordById(10L, 1L, false));
+    }
+
+    @Test
+    void testDeleteRecords_ByIdsInBatches() {
+        ReflectionTestUtils.setField(recordService, "deleteBatchSize", 2);
+        RecordDeleteDTO request = new RecordDeleteDTO();
+        request.setIds(List.of(1L, 2L, 3L, 3L));
+        request.setSoft(true);
+
+        when(recordRepository.softDeleteOwned(5L, List.of(1L, 2L))).thenReturn(2);
+        when(recordRepository.softDeleteOwned(5L, List.of(3L))).thenReturn(1);
+
+        assertEquals(3, recordService.deleteRecords(5L, request));
+        verify(recordRepository, never()).deleteOwned(any(), any());
+    }
+
+    @Test
+    void testDeleteRecords_ByFilter() {
+        LocalDateTime to = LocalDateTime.of(2024, 1, 1, 0, 0);
+        Operation operation = new Operation();
+        operation.setId(3L);
+        RecordDeleteDTO request = new RecordDeleteDTO();
+        request.setType("add");
+        request.setTo(to);
+
+        when(operationCatalog.find(OperationType.ADD)).thenReturn(Optional.of(operation));
+        when(recordRepository.deleteOwnedMatching(5L, 3L, null, to)).thenReturn(42);
+
+        assertEquals(42, recordService.deleteRecords(5L, request));
+    }
+
+    @Test
+    void testDeleteRecords_RequiresIdsOrFilter() {
+        assertThrows(IllegalArgumentException.class, () -> recordService.deleteRecords(5L, new RecordDeleteDTO()));
+
+        verifyNoInteractions(recordRepository);
+    }
 
-        verify(recordRepository, times(1)).findByUserId(userId);
+    private static RecordView view(Long id, LocalDateTime date) {
+        return new RecordView(id, "add", BigDecimal.ONE, BigDecimal.TEN, "Result: 2.0", date);
     }
 }
@@ -0,0 +1,172 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.entity.Operation;
+import com.challenge.operations.entity.Record;
+import com.challenge.operations.entity.User;
+import com.challenge.operations.repository.OperationRepository;
+import com.challenge.operations.repository.RecordRepository;
+import com.challenge.operations.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RecordWriteBehindTest {
+
+    @Mock
+    private RecordRepository recordRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private OperationRepository operationRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path spillDir;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(userRepository.getReferenceById(anyLong())).thenAnswer(invocation -> user(invocation.getArgument(0)));
+        when(operationRepository.getReferenceById(anyLong())).thenAnswer(invocation -> operation(invocation.getArgument(0)));
+    }
+
+    @Test
+    void testSubmit_CommittedRecordSurvivesCrashBeforeFlush() throws Exception {
+        RecordWriteBehind crashed = newWriter();
+        crashed.start();
+
+        commit(crashed, record(new BigDecimal("5.00")));
+        rollBack(crashed, record(new BigDecimal("7.00")));
+        assertEquals(1, crashed.stats().queueDepth());
+        verify(recordRepository, never()).saveAll(anyList());
+
+        // The instance dies here; the next one only has the spill directory
+        RecordWriteBehind restarted = newWriter();
+        restarted.start();
+        restarted.stop();
+
+        ArgumentCaptor<List<Record>> replayed = ArgumentCaptor.forClass(List.class);
+        verify(recordRepository).saveAll(replayed.capture());
+        assertEquals(1, replayed.getValue().size());
+        assertEquals(new BigDecimal("5.00"), replayed.getValue().get(0).getAmount());
+        assertEquals(1L, replayed.getValue().get(0).getUser().getId());
+    }
+
+    @Test
+    void testSubmit_SpillsBeforeCommit() throws Exception {
+        RecordWriteBehind writer = newWriter();
+        writer.start();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writer.submit(record(new BigDecimal("5.00")));
+            assertTrue(spilledLines().isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+            assertEquals(1, spilledLines().size());
+            assertEquals(0, writer.stats().queueDepth());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            assertEquals(1, writer.stats().queueDepth());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private RecordWriteBehind newWriter() {
+        RecordWriteBehind writer = new RecordWriteBehind();
+        ReflectionTestUtils.setField(writer, "recordRepository", recordRepository);
+        ReflectionTestUtils.setField(writer, "userRepository", userRepository);
+        ReflectionTestUtils.setField(writer, "operationRepository", operationRepository);
+        ReflectionTestUtils.setField(writer, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(writer, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        ReflectionTestUtils.setField(writer, "capacity", 100);
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        // Long enough that nothing is flushed while the test runs
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 3_600_000L);
+        ReflectionTestUtils.setField(writer, "offerTimeoutMs", 100L);
+        ReflectionTestUtils.setField(writer, "spillDir", spillDir.toString());
+        return writer;
+    }
+
+    private static void commit(RecordWriteBehind writer, Record record) {
+        complete(writer, record, TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private static void rollBack(RecordWriteBehind writer, Record record) {
+        complete(writer, record, TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    private static void complete(RecordWriteBehind writer, Record record, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            writer.submit(record);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            // A rollback raised at commit time still runs the before-commit callbacks
+            synchronizations.forEach(sync -> sync.beforeCommit(false));
+            synchronizations.forEach(sync -> sync.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private List<String> spilledLines() throws Exception {
+        try (Stream<Path> files = Files.list(spillDir)) {
+            return files.flatMap(path -> {
+                try {
+                    return Files.readAllLines(path).stream();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).toList();
+        }
+    }
+
+    private static Record record(BigDecimal amount) {
+        Record record = new Record();
+        record.setUser(user(1L));
+        record.setOperation(operation(2L));
+        record.setAmount(amount);
+        record.setUserBalance(new BigDecimal("100.00"));
+        record.setOperationResponse("8");
+        record.setDate(LocalDateTime.now());
+        return record;
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static Operation operation(Long id) {
+        Operation operation = new Operation();
+        operation.setId(id);
+        return operation;
+    }
+}
@@ -0,0 +1,86 @@
+package com.challenge.operations.service;
+
+import com.challenge.operations.dto.DailyUsageDTO;
+import com.challenge.operations.dto.UsageStatsDTO;
+import com.challenge.operations.entity.UsageDaily;
+import com.challenge.operations.entity.UsageDailyId;
+import com.challenge.operations.repository.UsageDailyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UsageServiceTest {
+
+    @Mock
+    private UsageDailyRepository usageDailyRepository;
+
+    @InjectMocks
+    private UsageService usageService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testRecordUsage_IncrementsAggregate() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+
+        usageService.recordUsage(1L, "add", day, null);
+
+        verify(usageDailyRepository, times(1)).increment(1L, day, "add", 1L, BigDecimal.ZERO);
+    }
+
+    @Test
+    void testGetStats_SumsRowsByDayAndType() {
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+
+        when(usageDailyRepository.findByUserSince(1L, today.minusDays(6))).thenReturn(List.of(
+                row(yesterday, "add", 2, "10.00"),
+                row(yesterday, "sqrt", 1, "20.00"),
+                row(today, "add", 3, "15.00")));
+        when(usageDailyRepository.sumTotalAmount(1L)).thenReturn(new BigDecimal("500.00"));
+
+        UsageStatsDTO stats = usageService.getStats(1L, 7);
+
+        assertEquals(new BigDecimal("500.00"), stats.totalSpent());
+        assertEquals(6, stats.periodOperations());
+        assertEquals(new BigDecimal("45.00"), stats.periodSpent());
+        assertEquals(Map.of("add", 5L, "sqrt", 1L), stats.operationsByType());
+        assertEquals(List.of(new DailyUsageDTO(yesterday, 3, new BigDecimal("30.00")),
+                new DailyUsageDTO(today, 3, new BigDecimal("15.00"))), stats.daily());
+    }
+
+    @Test
+    void testGetStats_NoUsage() {
+        UsageStatsDTO stats = usageService.getStats(1L, 30);
+
+        assertEquals(BigDecimal.ZERO, stats.totalSpent());
+        assertTrue(stats.daily().isEmpty());
+    }
+
+    @Test
+    void testGetStats_InvalidDays() {
+        assertThrows(IllegalArgumentException.class, () -> usageService.getStats(1L, 0));
+        assertThrows(IllegalArgumentException.class, () -> usageService.getStats(1L, 367));
+    }
+
+    private static UsageDaily row(LocalDate day, String type, long count, String amount) {
+        UsageDaily row = new UsageDaily();
+        row.setId(new UsageDailyId(1L, day, type));
+        row.setOperationCount(count);
+        row.setTotalAmount(new BigDecimal(amount));
+        return row;
+    }
+}
@@ -1,14 +1,23 @@
 package com.challenge.operations.service;
 
 import com.challenge.operations.entity.User;
+import com.challenge.operations.exception.InsufficientBalanceException;
+import com.challenge.operations.jwt.AuthenticatedUser;
+import com.challenge.operations.jwt.PrincipalCache;
 import com.challenge.operations.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,6 +28,15 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private PrincipalCache principalCache;
+
+    @Mock
+    private BalanceLedger balanceLedger;
+
+    @Mock
+    private BalanceJournal balanceJournal;
+
     @InjectMocks
     private UserService userService;
 
@@ -27,6 +45,11 @@ class UserServiceTest {
         MockitoAnnotations.openMocks(this);
     }
 
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     void testFindById_Success() {
         Long userId = 1L;
@@ -74,18 +97,30 @@ class UserServiceTest {
         BigDecimal amount = new BigDecimal("50.00");
         BigDecimal currentBalance = new BigDecimal("100.00");
 
-        User user = new User();
-        user.setId(userId);
-        user.setBalance(currentBalance);
-
-        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.creditBalance(userId, amount)).thenReturn(1);
+        when(userRepository.findBalanceById(userId)).thenReturn(Optional.of(currentBalance.add(amount)));
 
         userService.addBalance(userId, amount);
 
-        assertEquals(new BigDecimal("150.00"), user.getBalance());
+        verify(userRepository, times(1)).creditBalance(userId, amount);
+        verify(userRepository, never()).findById(userId);
+        verify(userRepository, never()).save(any(User.class));
+    }
 
-        verify(userRepository, times(1)).findById(userId);
-        verify(userRepository, times(1)).save(user);
+    @Test
+    void testAddBalance_UserNotFound() {
+        when(userRepository.creditBalance(1L, BigDecimal.TEN)).thenReturn(0);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.addBalance(1L, BigDecimal.TEN));
+    }
+
+    @Test
+    void testDebitBalance_JournalMode() {
+        when(balanceJournal.isEnabled()).thenReturn(true);
+        when(balanceJournal.debit(1L, BigDecimal.ONE)).thenReturn(new BigDecimal("99.00"));
+
+        assertEquals(new BigDecimal("99.00"), userService.debitBalance(1L, BigDecimal.ONE));
+        verify(userRepository, never()).debitBalance(any(), any());
     }
 
     @Test
@@ -117,4 +152,118 @@ class UserServiceTest {
         verify(userRepository, never()).findById(userId);
         verify(userRepository, never()).save(any(User.class));
     }
+
+    @Test
+    void testDebitBalance_Success() {
+        Long userId = 1L;
+        BigDecimal amount = new BigDecimal("5.00");
+
+        when(userRepository.debitBalance(userId, amount)).thenReturn(1);
+        when(userRepository.findBalanceById(userId)).thenReturn(Optional.of(new BigDecimal("95.00")));
+
+        BigDecimal balance = userService.debitBalance(userId, amount);
+
+        assertEquals(new BigDecimal("95.00"), balance);
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testDebitBalance_InsufficientBalance() {
+        Long userId = 1L;
+        BigDecimal amount = new BigDecimal("5.00");
+
+        when(userRepository.debitBalance(userId, amount)).thenReturn(0);
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        InsufficientBalanceException exception = assertThrows(InsufficientBalanceException.class, () -> {
+            userService.debitBalance(userId, amount);
+        });
+
+        assertEquals("Insufficient balance to carry out the operation.", exception.getMessage());
+        verify(userRepository, never()).findBalanceById(userId);
+    }
+
+    @Test
+    void testDebitBalance_UserNotFound() {
+        Long userId = 1L;
+        BigDecimal amount = new BigDecimal("5.00");
+
+        when(userRepository.debitBalance(userId, amount)).thenReturn(0);
+        when(userRepository.existsById(userId)).thenReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            userService.debitBalance(userId, amount);
+        });
+
+        assertEquals("User not found.", exception.getMessage());
+    }
+
+    @Test
+    void testCreditBalance_Success() {
+        when(userRepository.creditBalance(1L, new BigDecimal("7.00"))).thenReturn(1);
+
+        userService.creditBalance(1L, new BigDecimal("7.00"));
+
+        verify(userRepository, times(1)).creditBalance(1L, new BigDecimal("7.00"));
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testCreditBalance_JournalModeUnknownUser() {
+        when(balanceJournal.isEnabled()).thenReturn(true);
+        when(userRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> userService.creditBalance(2L, BigDecimal.ONE));
+        verify(balanceJournal, never()).credit(any(), any());
+    }
+
+    @Test
+    void testUpdateUser_EvictsCachedPrincipal() {
+        User user = new User();
+        user.setUsername("alice");
+
+        userService.updateUser(user);
+
+        verify(principalCache, times(1)).evict("alice");
+    }
+
+    @Test
+    void testUpdateUser_EvictsAgainAfterCommit() {
+        User user = new User();
+        user.setUsername("alice");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.updateUser(user);
+            verify(principalCache, times(1)).evict("alice");
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(principalCache, times(2)).evict("alice");
+    }
+
+    @Test
+    void testGetAuthenticatedUserId_FromPrincipal() {
+        AuthenticatedUser principal = new AuthenticatedUser(7L, "alice", "", List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        assertEquals(7L, userService.getAuthenticatedUserId());
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testResolveUserId() {
+        AuthenticatedUser principal = new AuthenticatedUser(7L, "alice", "", List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        assertEquals(7L, userService.resolveUserId(null));
+        assertEquals(7L, userService.resolveUserId(7L));
+        assertThrows(IllegalArgumentException.class, () -> userService.resolveUserId(8L));
+    }
 }
@@ -0,0 +1,54 @@
+package com.challenge.operations.util;
+
+import com.challenge.operations.dto.ExpressionCacheStatsDTO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionCacheTest {
+
+    @Test
+    void testGet_ReusesProgramForEquivalentWhitespace() {
+        ExpressionCache cache = new ExpressionCache(16, 4096);
+
+        CompiledExpression first = cache.get("10 + 1");
+        CompiledExpression second = cache.get(" 10+1 ");
+
+        assertSame(first, second);
+        ExpressionCacheStatsDTO stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void testGet_EvictsLeastRecentlyUsed() {
+        ExpressionCache cache = new ExpressionCache(2, 4096);
+
+        CompiledExpression first = cache.get("1 + 1");
+        cache.get("2 + 2");
+        cache.get("1 + 1");
+        cache.get("3 + 3");
+
+        assertSame(first, cache.get("1 + 1"));
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+    }
+
+    @Test
+    void testGet_ReportsPositionInOriginalExpression() {
+        ExpressionCache cache = new ExpressionCache(16, 4096);
+
+        ExpressionEvaluator.InvalidExpressionException exception = assertThrows(
+                ExpressionEvaluator.InvalidExpressionException.class, () -> cache.get("1 +   * 2"));
+
+        assertTrue(exception.getMessage().endsWith("at position 7."), exception.getMessage());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void testNormalize_KeepsSeparatorBetweenNumbers() {
+        assertEquals("1 2+3", ExpressionCache.normalize(" 1   2 + 3 "));
+        assertEquals("sqrt(4)", ExpressionCache.normalize("sqrt ( 4 )"));
+    }
+}
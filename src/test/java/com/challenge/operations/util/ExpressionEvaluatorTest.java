@@ -0,0 +1,83 @@
+package com.challenge.operations.util;
+
+import com.challenge.operations.util.ExpressionEvaluator.InvalidExpressionException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionEvaluatorTest {
+
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    @Test
+    void testEvaluate_Precedence() {
+        assertEquals(14.0, evaluator.evaluate("2 * (3 + 4)"));
+        assertEquals(11.0, evaluator.evaluate("10 + 2 / 2"));
+    }
+
+    @Test
+    void testEvaluate_SqrtAndNegativeNumbers() {
+        assertEquals(5.0, evaluator.evaluate("sqrt(16) + 1"));
+        assertEquals(-1.0, evaluator.evaluate("-3 + 2"));
+    }
+
+    @Test
+    void testCompile_ReusableProgram() {
+        CompiledExpression compiled = evaluator.compile("1.5 * 4 - 1");
+
+        assertEquals(5.0, compiled.eval());
+        assertEquals(5.0, compiled.eval());
+    }
+
+    @Test
+    void testCompile_RejectsMalformedExpression() {
+        InvalidExpressionException exception = assertThrows(InvalidExpressionException.class, () -> {
+            evaluator.compile("(1 + 2");
+        });
+
+        assertEquals("Invalid expression: mismatched parentheses.", exception.getMessage());
+        assertThrows(InvalidExpressionException.class, () -> evaluator.compile("1 2"));
+    }
+
+    @Test
+    void testCompile_ReportsPositionOfInvalidToken() {
+        InvalidExpressionException exception = assertThrows(InvalidExpressionException.class, () -> {
+            evaluator.compile("1 + x");
+        });
+
+        assertEquals("Invalid expression: unexpected character 'x' at position 5.", exception.getMessage());
+    }
+
+    @Test
+    void testEvaluate_DecimalLiterals() {
+        assertEquals(24.69, evaluator.evaluate("12.345 * 2"));
+        assertEquals(0.000123, evaluator.evaluate("0.000123"));
+    }
+
+    @Test
+    void testEval_DivisionByZero() {
+        CompiledExpression compiled = evaluator.compile("1 / 0");
+
+        InvalidExpressionException exception = assertThrows(InvalidExpressionException.class, compiled::eval);
+
+        assertEquals("Division by zero is not allowed.", exception.getMessage());
+    }
+
+    @Test
+    void testEvalDecimal_ExactDecimalArithmetic() {
+        CompiledExpression compiled = evaluator.compile("0.1 + 0.2");
+
+        assertEquals(new BigDecimal("0.3"), compiled.evaluate(NumericMode.DECIMAL, MathContext.DECIMAL64));
+        assertEquals(BigDecimal.valueOf(0.1 + 0.2), compiled.evaluate(NumericMode.DOUBLE, MathContext.DECIMAL64));
+    }
+
+    @Test
+    void testEvalDecimal_RoundsToMathContext() {
+        assertEquals(new BigDecimal("0.3333"), evaluator.compile("1 / 3").evalDecimal(new MathContext(4)));
+        assertEquals(new BigDecimal("1.414"), evaluator.compile("sqrt(2)").evalDecimal(new MathContext(4)));
+        assertEquals(new BigDecimal("-1"), evaluator.compile("-3 + 2").evalDecimal(MathContext.DECIMAL64));
+    }
+}
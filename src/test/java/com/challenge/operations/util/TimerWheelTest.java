@@ -0,0 +1,63 @@
+package com.challenge.operations.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    @Test
+    void testAdvance_ExpiresItemsOnceTheirTickHasPassed() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 0);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 300);
+
+        assertEquals(List.of(), wheel.advance(299));
+        assertEquals(List.of("a", "b"), wheel.advance(300).stream().sorted().toList());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testAdvance_KeepsItemsBeyondOneTurn() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 4, 0);
+        wheel.schedule("late", 1000);
+
+        assertEquals(List.of(), wheel.advance(500));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("late"), wheel.advance(1000));
+    }
+
+    @Test
+    void testAdvance_LongPauseExpiresEverythingDue() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 4, 0);
+        wheel.schedule("a", 100);
+        wheel.schedule("b", 350);
+        wheel.schedule("c", 5000);
+
+        assertEquals(List.of("a", "b"), wheel.advance(2000).stream().sorted().toList());
+        assertEquals(List.of("c"), wheel.advance(5000));
+    }
+
+    @Test
+    void testCancel_RemovesItem() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 0);
+        TimerWheel.Timeout timeout = wheel.schedule("a", 200);
+
+        timeout.cancel();
+        timeout.cancel();
+
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advance(1000));
+    }
+
+    @Test
+    void testSchedule_PastDeadlineExpiresOnNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 8, 1000);
+        wheel.schedule("a", 0);
+
+        assertEquals(List.of(), wheel.advance(1050));
+        assertEquals(List.of("a"), wheel.advance(1100));
+    }
+}